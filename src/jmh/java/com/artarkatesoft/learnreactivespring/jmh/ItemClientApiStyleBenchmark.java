@@ -0,0 +1,114 @@
+package com.artarkatesoft.learnreactivespring.jmh;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.controllers.ItemClientController;
+import com.artarkatesoft.learnreactivespring.controllers.ItemClientHandler;
+import com.artarkatesoft.learnreactivespring.controllers.ItemClientRoutes;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Requests per second through the annotated {@link ItemClientController} and the functional
+ * {@link ItemClientRoutes}, both over the same {@link ItemServerClient} and Reactor Netty stub, served
+ * in-memory through {@link WebTestClient}. The difference is the cost of handler mapping and argument
+ * resolution; compare startup with {@link ItemClientStartupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemClientApiStyleBenchmark {
+
+    @Param({"annotated", "functional"})
+    private String style;
+
+    private DisposableServer server;
+    private WebTestClient webTestClient;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] arrayJson = objectMapper.writeValueAsBytes(ItemCodecBenchmark.items(10));
+        byte[] singleJson = objectMapper.writeValueAsBytes(new Item("id1", "description of item 1", 1.25));
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get(ITEM_END_POINT_V1, (request, response) -> response
+                                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                                .sendByteArray(Mono.just(arrayJson)))
+                        .get(ITEM_END_POINT_V1 + "/{id}", (request, response) -> response
+                                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                                .sendByteArray(Mono.just(singleJson))))
+                .bindNow();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry);
+        UpstreamPolicies upstreamPolicies = new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry);
+        Hedging hedging = new Hedging(new HedgingProperties(), meterRegistry);
+        ItemCacheProperties cacheProperties = new ItemCacheProperties();
+        cacheProperties.setEnabled(false);
+        ItemCache itemCache = new ItemCache(cacheProperties, meterRegistry);
+        WebClient webClient = WebClient.create("http://localhost:" + server.port());
+        ItemServerClient itemServerClient = new ItemServerClient(webClient, itemCache,
+                new ItemListCache(new ItemListCacheProperties(), meterRegistry),
+                new ItemListCollapser(new ItemListCollapsingProperties(), meterRegistry), upstreamMetrics, hedging,
+                upstreamPolicies, new MultiGetProperties());
+        webTestClient = "functional".equals(style)
+                ? WebTestClient.bindToRouterFunction(ItemClientRoutes.routes(new ItemClientHandler(itemServerClient))).build()
+                : WebTestClient.bindToController(new ItemClientController(itemServerClient)).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public byte[] list() {
+        return get("/client/retrieve?limit=5");
+    }
+
+    @Benchmark
+    public byte[] byId() {
+        return get("/client/retrieve/id1");
+    }
+
+    private byte[] get(String uri) {
+        return webTestClient.get().uri(uri)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBodyContent();
+    }
+}
@@ -0,0 +1,142 @@
+package com.artarkatesoft.learnreactivespring.jmh;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.config.ConcurrencyLimitProperties;
+import com.artarkatesoft.learnreactivespring.config.EventLoopProperties;
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.config.WebClientConfig;
+import com.artarkatesoft.learnreactivespring.controllers.ItemClientController;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemListQuery;
+import com.artarkatesoft.learnreactivespring.eventloop.EventLoops;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.ConcurrencyLimiter;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.ItemServerBulkheads;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static io.netty.handler.codec.http.HttpResponseStatus.CREATED;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * End-to-end cost of each {@link ItemClientController} pipeline against an in-process Reactor Netty stub
+ * of the item server. The item cache is disabled so every invocation makes an upstream call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemClientControllerBenchmark {
+
+    @Param({"10", "1000"})
+    private int itemCount;
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private ItemClientController controller;
+    private Item newItem;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] arrayJson = objectMapper.writeValueAsBytes(ItemCodecBenchmark.items(itemCount));
+        byte[] singleJson = objectMapper.writeValueAsBytes(new Item("id1", "description of item 1", 1.25));
+        newItem = new Item(null, "new item", 9.99);
+
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get(ITEM_END_POINT_V1, (request, response) -> response
+                                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                                .sendByteArray(Mono.just(arrayJson)))
+                        .get(ITEM_END_POINT_V1 + "/{id}", (request, response) -> response
+                                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                                .sendByteArray(Mono.just(singleJson)))
+                        .post(ITEM_END_POINT_V1, (request, response) -> request.receive()
+                                .then(response.status(CREATED)
+                                        .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                                        .sendByteArray(Mono.just(singleJson))
+                                        .then())))
+                .bindNow();
+
+        ItemServerProperties serverProperties = new ItemServerProperties();
+        serverProperties.setUrl("http://localhost:" + server.port());
+        serverProperties.getPool().setMetrics(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry);
+        ItemCacheProperties cacheProperties = new ItemCacheProperties();
+        cacheProperties.setEnabled(false);
+
+        WebClientConfig webClientConfig = new WebClientConfig();
+        EventLoops eventLoops = new EventLoops(new EventLoopProperties(), meterRegistry);
+        connectionProvider = webClientConfig.itemServerConnectionProvider(serverProperties);
+        HttpClient httpClient = webClientConfig.itemServerHttpClient(connectionProvider, serverProperties, eventLoops);
+        WebClient webClient = webClientConfig.itemServerWebClient(
+                WebClient.builder(),
+                webClientConfig.itemServerConnector(httpClient, serverProperties, meterRegistry, eventLoops),
+                serverProperties,
+                upstreamMetrics,
+                webClientConfig.itemServerLoadBalancer(serverProperties, meterRegistry, httpClient),
+                new ConcurrencyLimiter(new ConcurrencyLimitProperties(), meterRegistry),
+                new ItemServerBulkheads(serverProperties, meterRegistry));
+        ItemCache itemCache = new ItemCache(cacheProperties, meterRegistry);
+        Hedging hedging = new Hedging(new HedgingProperties(), meterRegistry);
+        UpstreamPolicies upstreamPolicies = new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry);
+        controller = new ItemClientController(new ItemServerClient(webClient, itemCache,
+                new ItemListCache(new ItemListCacheProperties(), meterRegistry),
+                new ItemListCollapser(new ItemListCollapsingProperties(), meterRegistry), upstreamMetrics, hedging,
+                upstreamPolicies, new MultiGetProperties()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public Long retrieve() {
+        return controller.getAllItemsUsingRetrieve(new ItemListQuery()).count().block();
+    }
+
+    @Benchmark
+    public Long exchange() {
+        return controller.getAllItemsUsingExchange(new ItemListQuery()).count().block();
+    }
+
+    @Benchmark
+    public Item getById() {
+        return controller.getOneItemUsingRetrieve("id1").block();
+    }
+
+    @Benchmark
+    public Item create() {
+        return controller.createItem(newItem).block();
+    }
+}
@@ -0,0 +1,40 @@
+package com.artarkatesoft.learnreactivespring.jmh;
+
+import com.artarkatesoft.learnreactivespring.ItemClientApplication;
+import com.artarkatesoft.learnreactivespring.controllers.ItemClientRoutes;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from {@code SpringApplication.run} to a started {@link ItemClientApplication} with each
+ * {@code itemclient.api.style}. Every fork starts the application once in a fresh JVM, so the score is a cold
+ * start; the context is closed again outside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ItemClientStartupBenchmark {
+
+    @Param({"annotated", "functional"})
+    private String style;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        context = new SpringApplicationBuilder(ItemClientApplication.class)
+                .run("--server.port=0", "--" + ItemClientRoutes.STYLE_PROPERTY + "=" + style);
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        if (context != null) context.close();
+    }
+}
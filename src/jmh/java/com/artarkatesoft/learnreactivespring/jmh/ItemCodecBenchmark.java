@@ -0,0 +1,157 @@
+package com.artarkatesoft.learnreactivespring.jmh;
+
+import com.artarkatesoft.learnreactivespring.codec.ItemJsonDecoder;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Throughput of the WebFlux Jackson codecs for {@link Item}, the same decoder and encoder the controller uses,
+ * and of the streaming {@link ItemJsonDecoder} the item server WebClient decodes JSON with.
+ * Run with {@code -prof gc} to get the allocation rate per operation; divide by {@code itemCount} for bytes per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemCodecBenchmark {
+
+    private static final ResolvableType ITEM_TYPE = ResolvableType.forClass(Item.class);
+
+    @Param({"10", "1000", "100000"})
+    private int itemCount;
+
+    /**
+     * {@code unique} is the data set every codec case has always run on; {@code repeated} uses 16 distinct
+     * descriptions, as in a real catalog, so that description deduplication has something to find.
+     */
+    @Param({"unique", "repeated"})
+    private String descriptions;
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private Jackson2JsonDecoder decoder;
+    private Jackson2JsonEncoder encoder;
+    private ItemJsonDecoder itemDecoder;
+    private ItemJsonDecoder dedupingItemDecoder;
+
+    private List<Item> items;
+    private Item singleItem;
+    private byte[] arrayJson;
+    private byte[] singleJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        decoder = new Jackson2JsonDecoder(objectMapper);
+        decoder.setMaxInMemorySize(-1);
+        encoder = new Jackson2JsonEncoder(objectMapper);
+        itemDecoder = new ItemJsonDecoder(false);
+        dedupingItemDecoder = new ItemJsonDecoder(true);
+        items = "repeated".equals(descriptions) ? itemsWithRepeatedDescriptions(itemCount) : items(itemCount);
+        singleItem = items.get(0);
+        arrayJson = objectMapper.writeValueAsBytes(items);
+        singleJson = objectMapper.writeValueAsBytes(singleItem);
+    }
+
+    @Benchmark
+    public Item decodeSingle() {
+        return decoder.decodeToMono(Mono.fromSupplier(() -> wrap(singleJson)), ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap())
+                .cast(Item.class)
+                .block();
+    }
+
+    @Benchmark
+    public Long decodeArray() {
+        return decoder.decode(Flux.defer(() -> chunks(arrayJson)), ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap())
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Item decodeSingleStreaming() {
+        return itemDecoder.decodeToMono(Mono.fromSupplier(() -> wrap(singleJson)), ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap())
+                .block();
+    }
+
+    @Benchmark
+    public Long decodeArrayStreaming() {
+        return itemDecoder.decode(Flux.defer(() -> chunks(arrayJson)), ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap())
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long decodeArrayStreamingDeduped() {
+        return dedupingItemDecoder.decode(Flux.defer(() -> chunks(arrayJson)), ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap())
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long encodeSingle() {
+        return encodedBytes(Mono.just(singleItem));
+    }
+
+    @Benchmark
+    public Long encodeArray() {
+        return encodedBytes(Flux.fromIterable(items));
+    }
+
+    private Long encodedBytes(Publisher<Item> input) {
+        return encoder.encode(input, bufferFactory, ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap())
+                .map(buffer -> {
+                    long size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return size;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    private DataBuffer wrap(byte[] bytes) {
+        return bufferFactory.wrap(bytes);
+    }
+
+    //the upstream body arrives in network-sized chunks, not as one buffer
+    private Flux<DataBuffer> chunks(byte[] bytes) {
+        int chunkSize = 8192;
+        int chunkCount = (bytes.length + chunkSize - 1) / chunkSize;
+        return Flux.range(0, chunkCount)
+                .map(i -> {
+                    int offset = i * chunkSize;
+                    return bufferFactory.wrap(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+                });
+    }
+
+    static List<Item> items(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Item("id" + i, "description of item " + i, i * 1.25))
+                .collect(Collectors.toList());
+    }
+
+    static List<Item> itemsWithRepeatedDescriptions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Item("id" + i, "description of item " + i % 16, i * 1.25))
+                .collect(Collectors.toList());
+    }
+}
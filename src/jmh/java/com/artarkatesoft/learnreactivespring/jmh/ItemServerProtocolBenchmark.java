@@ -0,0 +1,120 @@
+package com.artarkatesoft.learnreactivespring.jmh;
+
+import com.artarkatesoft.learnreactivespring.config.EventLoopProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import com.artarkatesoft.learnreactivespring.config.WebClientConfig;
+import com.artarkatesoft.learnreactivespring.eventloop.EventLoops;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Latency of a burst of {@code concurrency} parallel single-item GETs over HTTP/1.1 and over h2c against an
+ * in-process item server stub that answers after a small delay. The {@code connections} counter is the number
+ * of distinct TCP connections the requests of an iteration arrived on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemServerProtocolBenchmark {
+
+    @Param({"HTTP11", "H2C"})
+    private ItemServerProperties.Protocol protocol;
+
+    @Param({"1", "64", "256"})
+    private int concurrency;
+
+    private final Set<InetSocketAddress> clientConnections = ConcurrentHashMap.newKeySet();
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private ClientHttpConnector connector;
+    private WebClient webClient;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] singleJson = new ObjectMapper().writeValueAsBytes(ItemCodecBenchmark.items(1).get(0));
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(protocol == ItemServerProperties.Protocol.HTTP11 ? HttpProtocol.HTTP11 : HttpProtocol.H2C)
+                .route(routes -> routes
+                        .get(ITEM_END_POINT_V1 + "/{id}", (request, response) -> {
+                            clientConnections.add(request.remoteAddress());
+                            return response
+                                    .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                                    .sendByteArray(Mono.delay(Duration.ofMillis(2)).thenReturn(singleJson));
+                        }))
+                .bindNow();
+
+        ItemServerProperties serverProperties = new ItemServerProperties();
+        serverProperties.setUrl("http://localhost:" + server.port());
+        serverProperties.setProtocol(protocol);
+        serverProperties.getPool().setMetrics(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        WebClientConfig webClientConfig = new WebClientConfig();
+        EventLoops eventLoops = new EventLoops(new EventLoopProperties(), meterRegistry);
+        connectionProvider = webClientConfig.itemServerConnectionProvider(serverProperties);
+        HttpClient httpClient = webClientConfig.itemServerHttpClient(connectionProvider, serverProperties, eventLoops);
+        connector = webClientConfig.itemServerConnector(httpClient, serverProperties, meterRegistry, eventLoops);
+        webClient = WebClient.builder()
+                .baseUrl(serverProperties.getUrl())
+                .clientConnector(connector)
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearConnections() {
+        clientConnections.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (connector instanceof DisposableBean) ((DisposableBean) connector).destroy();
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    //set, not added up: connections are reused across the bursts of an iteration
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Connections {
+        public long connections;
+    }
+
+    @Benchmark
+    public Long burst(Connections opened) {
+        Long answered = Flux.range(0, concurrency)
+                .flatMap(i -> webClient.get()
+                        .uri(ITEM_END_POINT_V1 + "/{id}", "id" + i)
+                        .retrieve()
+                        .bodyToMono(byte[].class), concurrency)
+                .count()
+                .block();
+        opened.connections = clientConnections.size();
+        return answered;
+    }
+}
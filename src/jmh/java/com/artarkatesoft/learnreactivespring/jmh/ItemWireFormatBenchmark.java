@@ -0,0 +1,103 @@
+package com.artarkatesoft.learnreactivespring.jmh;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bytes on the wire and decode cost of an item array for each format the client can negotiate, with and
+ * without gzip. The {@code items} counter gives decoded items per second, the {@code bodyBytes} and
+ * {@code bytesPerItem} counters the encoded size of the array.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemWireFormatBenchmark {
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private Format format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"10", "1000", "100000"})
+    private int itemCount;
+
+    private ObjectReader reader;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper(format.factory());
+        reader = objectMapper.readerFor(Item[].class);
+        byte[] encoded = objectMapper.writeValueAsBytes(ItemCodecBenchmark.items(itemCount));
+        body = gzip ? gzip(encoded) : encoded;
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class DecodedItems {
+        public long items;
+    }
+
+    //set, not added up: the size is the same for every call
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WireSize {
+        public long bodyBytes;
+        public double bytesPerItem;
+    }
+
+    @Benchmark
+    public Item[] decode(DecodedItems decoded, WireSize wireSize) throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        Item[] items = reader.readValue(gzip ? new GZIPInputStream(in) : in);
+        decoded.items += items.length;
+        wireSize.bodyBytes = body.length;
+        wireSize.bytesPerItem = (double) body.length / itemCount;
+        return items;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    public enum Format {
+        JSON {
+            JsonFactory factory() {
+                return new JsonFactory();
+            }
+        },
+        SMILE {
+            JsonFactory factory() {
+                return new SmileFactory();
+            }
+        },
+        CBOR {
+            JsonFactory factory() {
+                return new CBORFactory();
+            }
+        };
+
+        abstract JsonFactory factory();
+    }
+}
@@ -0,0 +1,137 @@
+package com.artarkatesoft.learnreactivespring.loadtest;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.HttpMethod;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Open-model load generator: requests are started at a constant arrival rate regardless of how many are
+ * still outstanding, and latency is measured from the intended start time so a stalled target cannot
+ * hide its queueing delay (no coordinated omission).
+ */
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final HttpClient httpClient;
+    private final ConnectionProvider connectionProvider;
+
+    public LoadGenerator(String target, int maxConnections) {
+        connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 100)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        httpClient = HttpClient.create(connectionProvider).baseUrl(target);
+    }
+
+    public Result run(Endpoint endpoint, int ratePerSecond, Duration duration) {
+        Result result = new Result(endpoint);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long requestCount = duration.toNanos() / intervalNanos;
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < requestCount; i++) {
+            long intendedStart = startNanos + i * intervalNanos;
+            long sleepNanos = intendedStart - System.nanoTime();
+            if (sleepNanos > 0) LockSupport.parkNanos(sleepNanos);
+            result.outstanding.incrementAndGet();
+            send(endpoint)
+                    .subscribe(
+                            status -> result.record(intendedStart, status < 400),
+                            error -> result.record(intendedStart, false));
+        }
+        result.sentNanos = System.nanoTime() - startNanos;
+        while (result.outstanding.get() > 0) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        return result;
+    }
+
+    private Mono<Integer> send(Endpoint endpoint) {
+        HttpClient client = endpoint.body == null
+                ? httpClient
+                : httpClient.headers(headers -> headers.set(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        HttpClient.RequestSender sender = client.request(endpoint.method).uri(endpoint.path);
+        HttpClient.ResponseReceiver<?> receiver = endpoint.body == null
+                ? sender
+                : sender.send(ByteBufFlux.fromString(Mono.just(endpoint.body), StandardCharsets.UTF_8, ByteBufAllocator.DEFAULT));
+        return receiver.responseSingle((response, body) -> body.asByteArray()
+                .map(bytes -> response.status().code())
+                .defaultIfEmpty(response.status().code()));
+    }
+
+    public void dispose() {
+        connectionProvider.dispose();
+    }
+
+    public static class Endpoint {
+        private final HttpMethod method;
+        private final String path;
+        private final String body;
+
+        /**
+         * @param spec {@code METHOD /path} optionally followed by a space and a JSON request body
+         */
+        public static Endpoint parse(String spec) {
+            String[] parts = spec.trim().split(" ", 3);
+            return new Endpoint(HttpMethod.valueOf(parts[0]), parts[1], parts.length > 2 ? parts[2] : null);
+        }
+
+        private Endpoint(HttpMethod method, String path, String body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        public String name() {
+            return method + " " + path;
+        }
+    }
+
+    public static class Result {
+        private final Endpoint endpoint;
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong outstanding = new AtomicLong();
+        private long sentNanos;
+
+        Result(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void record(long intendedStartNanos, boolean success) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+            histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (!success) errors.incrementAndGet();
+            outstanding.decrementAndGet();
+        }
+
+        public Endpoint getEndpoint() {
+            return endpoint;
+        }
+
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        public double getAchievedRate() {
+            return histogram.getTotalCount() / (sentNanos / 1e9);
+        }
+    }
+}
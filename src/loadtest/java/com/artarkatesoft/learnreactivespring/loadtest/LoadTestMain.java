@@ -0,0 +1,108 @@
+package com.artarkatesoft.learnreactivespring.loadtest;
+
+import com.artarkatesoft.learnreactivespring.ItemClientApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.DisposableServer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Drives the client's {@code /client/*} endpoints with constant-arrival-rate traffic and writes one
+ * HdrHistogram percentile file per endpoint plus {@code summary.csv} into {@code loadtest.report-dir}.
+ * <p>
+ * Without {@code loadtest.target} a {@link StubItemServer} and an {@link ItemClientApplication} are started
+ * in-process on free ports, so the whole run is offline. Settings ({@code -D} system properties):
+ * <ul>
+ * <li>{@code loadtest.target} - base URL of an already running client (default: start one in-process)</li>
+ * <li>{@code loadtest.endpoints} - {@code ;}-separated {@code METHOD /path [json body]} entries</li>
+ * <li>{@code loadtest.rate} - requests per second per endpoint (default 200)</li>
+ * <li>{@code loadtest.warmup} - warm-up duration per endpoint, not reported (default 5s)</li>
+ * <li>{@code loadtest.duration} - measured duration per endpoint (default 30s)</li>
+ * <li>{@code loadtest.max-connections} - connections from the generator to the client (default 1000)</li>
+ * <li>{@code loadtest.report-dir} - output directory (default target/loadtest)</li>
+ * </ul>
+ * plus the {@code stub.*} properties of {@link StubItemServer}.
+ */
+public class LoadTestMain {
+
+    private static final String DEFAULT_ENDPOINTS = "GET /client/retrieve;GET /client/exchange;" +
+            "GET /client/retrieve/id1;GET /client/exchange/id1;" +
+            "GET /client/passthrough/retrieve;GET /client/passthrough/retrieve/id1;" +
+            "POST /client/createItem {\"description\":\"load test\",\"price\":1.5}";
+
+    public static void main(String[] args) throws FileNotFoundException {
+        String target = System.getProperty("loadtest.target");
+        int rate = Integer.getInteger("loadtest.rate", 200);
+        Duration warmup = StubItemServer.duration("loadtest.warmup", "5s");
+        Duration duration = StubItemServer.duration("loadtest.duration", "30s");
+        File reportDir = new File(System.getProperty("loadtest.report-dir", "target/loadtest"));
+
+        DisposableServer stub = null;
+        ConfigurableApplicationContext application = null;
+        if (target == null) {
+            System.setProperty("stub.port", System.getProperty("stub.port", "0"));
+            stub = new StubItemServer().start();
+            //command line arguments, unlike default properties, take precedence over application.properties
+            List<String> applicationArgs = new ArrayList<>(Arrays.asList(args));
+            applicationArgs.add("--server.port=0");
+            applicationArgs.add("--itemclient.itemserver.url=http://localhost:" + stub.port());
+            application = new SpringApplicationBuilder(ItemClientApplication.class)
+                    .run(applicationArgs.toArray(new String[0]));
+            target = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+
+        LoadGenerator generator = new LoadGenerator(target, Integer.getInteger("loadtest.max-connections", 1000));
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        try {
+            for (String spec : System.getProperty("loadtest.endpoints", DEFAULT_ENDPOINTS).split(";")) {
+                LoadGenerator.Endpoint endpoint = LoadGenerator.Endpoint.parse(spec);
+                System.out.printf("%s: warm-up %s, measuring %s at %d req/s%n", endpoint.name(), warmup, duration, rate);
+                generator.run(endpoint, rate, warmup);
+                results.add(generator.run(endpoint, rate, duration));
+            }
+        } finally {
+            generator.dispose();
+            if (application != null) application.close();
+            if (stub != null) stub.disposeNow();
+        }
+        writeReports(reportDir, results);
+    }
+
+    private static void writeReports(File reportDir, List<LoadGenerator.Result> results) throws FileNotFoundException {
+        reportDir.mkdirs();
+        try (PrintStream summary = new PrintStream(new File(reportDir, "summary.csv"))) {
+            summary.println("endpoint,requests,errors,achieved_rps,p50_ms,p99_ms,p999_ms,max_ms");
+            for (LoadGenerator.Result result : results) {
+                Histogram histogram = result.getHistogram();
+                String name = result.getEndpoint().name();
+                String line = String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f",
+                        name, histogram.getTotalCount(), result.getErrors(), result.getAchievedRate(),
+                        millis(histogram, 50.0), millis(histogram, 99.0), millis(histogram, 99.9),
+                        histogram.getMaxValue() / 1000.0);
+                summary.println(line);
+                System.out.println(line);
+                try (PrintStream hgrm = new PrintStream(new File(reportDir, fileName(name) + ".hgrm"))) {
+                    histogram.outputPercentileDistribution(hgrm, 1000.0);
+                }
+            }
+        }
+        System.out.println("Reports written to " + reportDir.getAbsolutePath());
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String fileName(String endpointName) {
+        return endpointName.replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+}
@@ -0,0 +1,143 @@
+package com.artarkatesoft.learnreactivespring.loadtest;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.convert.DurationStyle;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static io.netty.handler.codec.http.HttpResponseStatus.CREATED;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+/**
+ * Local stand-in for the item server's {@code /v1/items} API with tunable latency, error rate, payload size
+ * and slow-drip bodies. Settings are read from {@code stub.*} system properties:
+ * <ul>
+ * <li>{@code stub.port} - listen port, 0 picks a free one (default 8080)</li>
+ * <li>{@code stub.latency} - delay before the response starts (default 0ms)</li>
+ * <li>{@code stub.latency-jitter} - extra random delay from 0 up to this value (default 0ms)</li>
+ * <li>{@code stub.error-rate} - fraction of requests answered with 500 (default 0.0)</li>
+ * <li>{@code stub.item-count} - size of the list returned by {@code GET /v1/items} (default 100)</li>
+ * <li>{@code stub.description-length} - length of each item description (default 32)</li>
+ * <li>{@code stub.drip-chunks} - number of chunks each body is split into (default 1)</li>
+ * <li>{@code stub.drip-delay} - delay between chunks (default 0ms)</li>
+ * </ul>
+ */
+public class StubItemServer {
+
+    private final int port;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final double errorRate;
+    private final int dripChunks;
+    private final Duration dripDelay;
+    private final int descriptionLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final byte[] itemsJson;
+
+    public StubItemServer() {
+        port = Integer.getInteger("stub.port", 8080);
+        latency = duration("stub.latency", "0ms");
+        latencyJitter = duration("stub.latency-jitter", "0ms");
+        errorRate = Double.parseDouble(System.getProperty("stub.error-rate", "0.0"));
+        dripChunks = Math.max(1, Integer.getInteger("stub.drip-chunks", 1));
+        dripDelay = duration("stub.drip-delay", "0ms");
+        descriptionLength = Integer.getInteger("stub.description-length", 32);
+        List<Item> items = IntStream.rangeClosed(1, Integer.getInteger("stub.item-count", 100))
+                .mapToObj(i -> item("id" + i, i))
+                .collect(Collectors.toList());
+        itemsJson = toJson(items);
+    }
+
+    public DisposableServer start() {
+        return HttpServer.create()
+                .port(port)
+                .route(routes -> routes
+                        .get(ITEM_END_POINT_V1, (request, response) -> respond(response, itemsJson))
+                        .get(ITEM_END_POINT_V1 + "/{id}", (request, response) ->
+                                respond(response, toJson(item(request.param("id"), 1))))
+                        .post(ITEM_END_POINT_V1, (request, response) -> request.receive().aggregate().asByteArray()
+                                .flatMap(body -> respond(response.status(CREATED), withId(body, "stub-" + System.nanoTime()))))
+                        .put(ITEM_END_POINT_V1 + "/{id}", (request, response) -> request.receive().aggregate().asByteArray()
+                                .flatMap(body -> respond(response, withId(body, request.param("id")))))
+                        .delete(ITEM_END_POINT_V1 + "/{id}", (request, response) -> respond(response, new byte[0])))
+                .bindNow();
+    }
+
+    private Mono<Void> respond(HttpServerResponse response, byte[] body) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayMillis = latency.toMillis() + (latencyJitter.isZero() ? 0 : random.nextLong(latencyJitter.toMillis() + 1));
+        boolean fail = errorRate > 0 && random.nextDouble() < errorRate;
+        return Mono.delay(Duration.ofMillis(delayMillis))
+                .then(fail
+                        ? response.status(INTERNAL_SERVER_ERROR)
+                        .header(CONTENT_TYPE, TEXT_PLAIN_VALUE)
+                        .sendString(Mono.just("Stub Error"))
+                        .then()
+                        : response.header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                        .sendByteArray(drip(body))
+                        .then());
+    }
+
+    private Flux<byte[]> drip(byte[] body) {
+        if (dripChunks == 1 || body.length == 0) return Flux.just(body);
+        int chunkSize = Math.max(1, (body.length + dripChunks - 1) / dripChunks);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += chunkSize)
+            chunks.add(Arrays.copyOfRange(body, offset, Math.min(body.length, offset + chunkSize)));
+        return Flux.fromIterable(chunks).delayElements(dripDelay);
+    }
+
+    private Item item(String id, int index) {
+        StringBuilder description = new StringBuilder("item ").append(index).append(' ');
+        while (description.length() < descriptionLength) description.append('x');
+        description.setLength(descriptionLength);
+        return new Item(id, description.toString(), index * 1.25);
+    }
+
+    private byte[] withId(byte[] body, String id) {
+        try {
+            Item item = objectMapper.readValue(body, Item.class);
+            item.setId(id);
+            return toJson(item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    public static void main(String[] args) {
+        DisposableServer server = new StubItemServer().start();
+        System.out.println("Stub item server listening on port " + server.port());
+        server.onDispose().block();
+    }
+}
@@ -0,0 +1,107 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of single items keyed by id.
+ * <p>
+ * Concurrent misses for the same id share one in-flight upstream call. Empty and failed lookups are not cached,
+ * nor are lookups that were loading while a {@link #write} of the same id ran, as they may have read the old item.
+ */
+@Component
+public class ItemCache {
+
+    public static final String CACHE_NAME = "items";
+
+    //versions are striped by id hash: a write to one id may also keep a lookup of another out of the cache, never
+    //the other way round
+    private static final int VERSION_STRIPES = 1024;
+
+    private final boolean enabled;
+    private final AsyncCache<String, Item> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private volatile Function<String, Item> fallback = id -> null;
+
+    public ItemCache(ItemCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME, Collections.emptyList());
+    }
+
+    public Mono<Item> get(String id, Function<String, Mono<Item>> loader) {
+        if (!enabled) return Mono.defer(() -> {
+            Item restored = fallback(id);
+            return restored != null ? Mono.just(restored) : loader.apply(id);
+        });
+        return Mono.defer(() -> {
+            long[] loadedAt = {-1};
+            CompletableFuture<Item> future = cache.get(id, (key, executor) -> {
+                loadedAt[0] = version(key);
+                Item restored = fallback(key);
+                return restored != null ? CompletableFuture.completedFuture(restored) : loader.apply(key).toFuture();
+            });
+            //only the call that started the load checks it; the future is in the cache by now, even if already done
+            if (loadedAt[0] >= 0) future.whenComplete((item, error) -> {
+                if (version(id) != loadedAt[0]) cache.asMap().remove(id, future);
+            });
+            //cancelling one subscriber does not cancel the shared future, so other waiters still get the result
+            return Mono.fromFuture(future);
+        });
+    }
+
+    /**
+     * Runs {@code write} of item {@code id}, invalidating it before the write starts and again before the write's
+     * result reaches the caller, so neither a cached item nor a lookup racing the write outlives it.
+     */
+    public <T> Mono<T> write(String id, Mono<T> write) {
+        return Mono.fromRunnable(() -> invalidate(id))
+                .then(write)
+                .doOnTerminate(() -> invalidate(id))
+                .doOnCancel(() -> invalidate(id));
+    }
+
+    /**
+     * Answers misses from {@code fallback} instead of the loader when it has the item, e.g. from a snapshot
+     * restored on start. It returns {@code null} for items it does not have or no longer trusts. An id that was
+     * invalidated, e.g. by a write, is never answered from it again.
+     */
+    public void setFallback(Function<String, Item> fallback) {
+        this.fallback = fallback;
+    }
+
+    public void invalidate(String id) {
+        versions.incrementAndGet(stripe(id));
+        cache.synchronous().invalidate(id);
+    }
+
+    @Nullable
+    private Item fallback(String id) {
+        //an invalidated stripe has seen a write since start, which the fallback knows nothing of
+        return version(id) == 0 ? fallback.apply(id) : null;
+    }
+
+    private long version(String id) {
+        return versions.get(stripe(id));
+    }
+
+    private static int stripe(String id) {
+        return id.hashCode() & (VERSION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Snapshot of the full item list, revalidated with a conditional GET.
+ * <p>
+ * A snapshot younger than {@code refreshAfter} is served as is. Up to {@code maxStale} it is still served,
+ * while one background call revalidates it; past that, readers wait for the revalidation. The loader gets the
+ * current snapshot (or {@code null}) to take the validators from, and completes empty when the item server
+ * answers {@code 304 Not Modified}. Concurrent reads share one in-flight upstream call.
+ */
+@Slf4j
+@Component
+public class ItemListCache {
+
+    public static final String AGE_METRIC = "itemclient.cache.list.age";
+    public static final String READS_METRIC = "itemclient.cache.list.reads";
+    public static final String REVALIDATIONS_METRIC = "itemclient.cache.list.revalidations";
+
+    private final ItemListCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReference<ItemListSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<ItemListSnapshot>> refresh = new AtomicReference<>();
+    //bumped by expire; guarded by snapshot
+    private long generation;
+
+    public ItemListCache(ItemListCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(AGE_METRIC, snapshot, current -> current.get() == null ? Double.NaN : current.get().age().toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .description("Age of the item list snapshot")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Flux<Item> get(Function<ItemListSnapshot, Mono<ItemListSnapshot>> loader) {
+        return Mono.defer(() -> {
+            ItemListSnapshot current = snapshot.get();
+            if (current == null) return read("miss", Mono.fromFuture(refresh(loader, null)));
+            long age = current.age().toNanos();
+            if (age <= properties.getRefreshAfter().toNanos()) return read("fresh", Mono.just(current));
+            if (age <= properties.getMaxStale().toNanos()) {
+                refresh(loader, current);
+                return read("stale", Mono.just(current));
+            }
+            //cancelling one reader does not cancel the shared future, so other readers still get the result
+            return read("expired", Mono.fromFuture(refresh(loader, current)));
+        }).flatMapIterable(ItemListSnapshot::getItems);
+    }
+
+    @Nullable
+    public ItemListSnapshot current() {
+        return snapshot.get();
+    }
+
+    /**
+     * Installs {@code restored} unless a snapshot was loaded already; its age decides whether it is revalidated.
+     */
+    public boolean seed(ItemListSnapshot restored) {
+        return snapshot.compareAndSet(null, restored);
+    }
+
+    /**
+     * Makes the next read wait for a revalidation, e.g. after a write through this client.
+     */
+    public void expire() {
+        synchronized (snapshot) {
+            generation++;
+            snapshot.updateAndGet(current -> current == null ? null : current.expired(properties.getMaxStale()));
+        }
+    }
+
+    private Mono<ItemListSnapshot> read(String result, Mono<ItemListSnapshot> snapshot) {
+        meterRegistry.counter(READS_METRIC, "result", result).increment();
+        return snapshot;
+    }
+
+    private CompletableFuture<ItemListSnapshot> refresh(Function<ItemListSnapshot, Mono<ItemListSnapshot>> loader,
+                                                        @Nullable ItemListSnapshot previous) {
+        CompletableFuture<ItemListSnapshot> future = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<ItemListSnapshot> running = refresh.get();
+            if (running != null) return running;
+            if (refresh.compareAndSet(null, future)) break;
+        }
+        long started;
+        synchronized (snapshot) {
+            started = generation;
+        }
+        loader.apply(previous)
+                .switchIfEmpty(Mono.defer(() -> previous == null
+                        ? Mono.error(new IllegalStateException("Item list not modified, but there is no snapshot"))
+                        : Mono.just(previous.renewed())))
+                .subscribe(
+                        loaded -> {
+                            synchronized (snapshot) {
+                                //may have been read before a write that expired the snapshot meanwhile
+                                snapshot.set(generation == started ? loaded : loaded.expired(properties.getMaxStale()));
+                            }
+                            refresh.set(null);
+                            //a renewed snapshot keeps the previous item list
+                            if (previous != null) revalidated(loaded.getItems() == previous.getItems() ? "not_modified" : "modified");
+                            future.complete(loaded);
+                        },
+                        error -> {
+                            refresh.set(null);
+                            if (previous != null) revalidated("error");
+                            log.warn("Item list refresh failed: {}", error.toString());
+                            future.completeExceptionally(error);
+                        });
+        return future;
+    }
+
+    private void revalidated(String result) {
+        meterRegistry.counter(REVALIDATIONS_METRIC, "result", result).increment();
+    }
+}
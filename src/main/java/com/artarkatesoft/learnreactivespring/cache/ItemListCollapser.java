@@ -0,0 +1,102 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical item list calls onto one in-flight upstream stream.
+ * <p>
+ * A caller that arrives while a list for the same key is streaming gets the items emitted so far, then the live
+ * tail. Each caller buffers at most {@code maxLag} items on its own: a caller that falls further behind is cut off
+ * at once, whether or not it is still requesting, so it neither stalls the others nor keeps holding its buffer. Its
+ * response has started by then, so it ends abruptly rather than with a status. Once the stream ends, fails or loses
+ * all its callers, the next call starts a new one.
+ */
+@Component
+public class ItemListCollapser {
+
+    public static final String CALLS_METRIC = "itemclient.collapsing.list.calls";
+    public static final String SAVED_METRIC = "itemclient.collapsing.list.saved";
+
+    private final ItemListCollapsingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Shared> inFlight = new ConcurrentHashMap<>();
+
+    public ItemListCollapser(ItemListCollapsingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @param key      identifies identical calls, e.g. the operation
+     * @param upstream the upstream call, subscribed once per shared stream
+     */
+    public Flux<Item> get(String key, Supplier<Flux<Item>> upstream) {
+        return Flux.defer(() -> {
+            Shared[] started = {null};
+            Shared shared = inFlight.compute(key, (k, current) -> {
+                if (current != null && current.isJoinable()) return current;
+                return started[0] = new Shared(k, upstream.get());
+            });
+            if (shared == started[0]) {
+                meterRegistry.counter(CALLS_METRIC, "operation", key, "result", "started").increment();
+            } else {
+                meterRegistry.counter(CALLS_METRIC, "operation", key, "result", "joined").increment();
+                meterRegistry.counter(SAVED_METRIC, "operation", key).increment();
+            }
+            //an ERROR overflow strategy would signal only after the buffer drained, which a stalled caller never does;
+            //this cancels the caller's subscription and drops its buffer as soon as it is full
+            MonoProcessor<Boolean> overflow = MonoProcessor.create();
+            return shared.items
+                    .onBackpressureBuffer(properties.getMaxLag(), dropped -> overflow.onNext(true), BufferOverflowStrategy.DROP_LATEST)
+                    .takeUntilOther(overflow)
+                    .concatWith(Mono.defer(() -> overflow.isTerminated()
+                            ? Mono.error(Exceptions.failWithOverflow("Caller fell more than " + properties.getMaxLag()
+                            + " items behind the shared item list"))
+                            : Mono.empty()));
+        });
+    }
+
+    private final class Shared {
+        private final AtomicLong emitted = new AtomicLong();
+        private final Flux<Item> items;
+        private volatile boolean done;
+
+        private Shared(String key, Flux<Item> upstream) {
+            this.items = upstream
+                    .doOnNext(item -> emitted.incrementAndGet())
+                    //before the signal reaches the callers, so nobody joins a finished stream
+                    .doOnComplete(() -> leave(key))
+                    .doOnError(error -> leave(key))
+                    .doOnCancel(() -> leave(key))
+                    .replay(properties.getMaxReplay())
+                    .refCount();
+        }
+
+        //half the replay size is left as headroom for items emitted while a caller is joining
+        private boolean isJoinable() {
+            return !done && emitted.get() < properties.getMaxReplay() / 2;
+        }
+
+        private void leave(String key) {
+            done = true;
+            inFlight.remove(key, this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The full item list as last returned by the item server, with the validators to revalidate it.
+ */
+public final class ItemListSnapshot {
+
+    private final List<Item> items;
+    @Nullable
+    private final String etag;
+    @Nullable
+    private final String lastModified;
+    private final long fetchedAtNanos;
+
+    private ItemListSnapshot(List<Item> items, @Nullable String etag, @Nullable String lastModified, long fetchedAtNanos) {
+        this.items = items;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.fetchedAtNanos = fetchedAtNanos;
+    }
+
+    public static ItemListSnapshot of(List<Item> items, HttpHeaders responseHeaders) {
+        return new ItemListSnapshot(Collections.unmodifiableList(items), responseHeaders.getETag(),
+                responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED), System.nanoTime());
+    }
+
+    /**
+     * A snapshot fetched {@code age} ago and kept elsewhere since, e.g. on disk across a restart.
+     * {@code items} is kept as is and must not change.
+     */
+    public static ItemListSnapshot restored(List<Item> items, @Nullable String etag, @Nullable String lastModified, Duration age) {
+        return new ItemListSnapshot(items, etag, lastModified, System.nanoTime() - age.toNanos());
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
+    @Nullable
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Adds {@code If-None-Match} and {@code If-Modified-Since} for whichever validators the item server sent.
+     */
+    public void addValidators(HttpHeaders requestHeaders) {
+        if (etag != null) requestHeaders.setIfNoneMatch(etag);
+        if (lastModified != null) requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+    }
+
+    public Duration age() {
+        return Duration.ofNanos(System.nanoTime() - fetchedAtNanos);
+    }
+
+    /**
+     * Reads an item list response: empty for {@code 304 Not Modified}, an error for 4xx/5xx, a new snapshot otherwise.
+     */
+    public static Mono<ItemListSnapshot> read(ClientResponse response) {
+        if (response.rawStatusCode() == HttpStatus.NOT_MODIFIED.value()) return response.releaseBody().then(Mono.empty());
+        if (response.rawStatusCode() >= 400) return response.createException().flatMap(Mono::error);
+        return response.bodyToFlux(Item.class)
+                .collectList()
+                .map(items -> of(items, response.headers().asHttpHeaders()));
+    }
+
+    public ItemListSnapshot renewed() {
+        return new ItemListSnapshot(items, etag, lastModified, System.nanoTime());
+    }
+
+    ItemListSnapshot expired(Duration maxStale) {
+        return new ItemListSnapshot(items, etag, lastModified, System.nanoTime() - maxStale.toNanos() - 1);
+    }
+}
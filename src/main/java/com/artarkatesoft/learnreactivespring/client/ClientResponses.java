@@ -0,0 +1,32 @@
+package com.artarkatesoft.learnreactivespring.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Helpers for exchange filters that hold a resource for the whole call. A filter's response {@code Mono} emits
+ * at the response headers, while a streamed item list is still being read long after.
+ */
+public final class ClientResponses {
+
+    private ClientResponses() {
+    }
+
+    /**
+     * {@code response} with {@code done} run once its body has been read, has failed or was cancelled, before
+     * the reader sees the end of the body. Every caller consumes or releases the body, so {@code done} always runs.
+     */
+    public static ClientResponse doOnBodyDone(ClientResponse response, Runnable done) {
+        AtomicBoolean ran = new AtomicBoolean();
+        Runnable once = () -> {
+            if (ran.compareAndSet(false, true)) done.run();
+        };
+        return ClientResponse.from(response)
+                .body(response.bodyToFlux(DataBuffer.class)
+                        .doOnTerminate(once)
+                        .doOnCancel(once))
+                .build();
+    }
+}
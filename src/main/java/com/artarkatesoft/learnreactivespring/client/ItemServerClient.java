@@ -0,0 +1,258 @@
+package com.artarkatesoft.learnreactivespring.client;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.cache.ItemListSnapshot;
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties.Traffic;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemListQuery;
+import com.artarkatesoft.learnreactivespring.domain.ItemLookup;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.ConcurrencyLimitExceededException;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+import static com.artarkatesoft.learnreactivespring.resilience.ItemServerBulkheads.TRAFFIC_ATTRIBUTE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Calls to the item server behind the client API, shared by the annotated {@code ItemClientController} and the
+ * functional {@code ItemClientRoutes}. Reads go through the item and item list caches, hedging, metrics and
+ * upstream policies; writes invalidate what they change.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemServerClient {
+
+    //items decoded ahead of the caller's demand, so memory does not grow with the catalog
+    private static final int LIST_PREFETCH = 256;
+
+    private final WebClient webClient;
+    private final ItemCache itemCache;
+    private final ItemListCache itemListCache;
+    private final ItemListCollapser itemListCollapser;
+    private final UpstreamMetrics upstreamMetrics;
+    private final Hedging hedging;
+    private final UpstreamPolicies upstreamPolicies;
+    private final MultiGetProperties multiGetProperties;
+
+    public Flux<Item> getAllUsingRetrieve(ItemListQuery query) {
+        return getAll(OPERATION_RETRIEVE, query, spec -> spec.retrieve().bodyToFlux(Item.class));
+    }
+
+    public Flux<Item> getAllUsingExchange(ItemListQuery query) {
+        return getAll(OPERATION_EXCHANGE, query, spec -> spec.exchange().flatMapMany(clientResponse -> clientResponse.bodyToFlux(Item.class)));
+    }
+
+    public Mono<Item> getOne(String id) {
+        return getOne(id, spec -> spec.retrieve().bodyToMono(Item.class));
+    }
+
+    public Mono<Item> getOneUsingExchange(String id) {
+        return getOne(id, spec -> spec.exchange().flatMap(clientResponse -> clientResponse.bodyToMono(Item.class)));
+    }
+
+    /**
+     * Looks up every distinct id once, at most {@code concurrency} at a time, or the configured default when
+     * {@code null}. Results follow the order of {@code ids} when {@code ordered}, otherwise the order the lookups
+     * complete in. A missing or failed id yields an {@link ItemLookup} with its status instead of an error.
+     */
+    public Flux<ItemLookup> getMany(Collection<String> ids, @Nullable Integer concurrency, boolean ordered) {
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > multiGetProperties.getMaxIds())
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + multiGetProperties.getMaxIds() + " distinct ids per request"));
+        int parallelism = Math.max(1, Math.min(concurrency == null ? multiGetProperties.getConcurrency() : concurrency,
+                multiGetProperties.getMaxConcurrency()));
+        Function<String, Mono<ItemLookup>> lookup = id -> getOne(id)
+                .map(item -> ItemLookup.found(id, item))
+                .switchIfEmpty(Mono.fromSupplier(() -> ItemLookup.failed(id, HttpStatus.NOT_FOUND.value(), "No item with id " + id)))
+                .onErrorResume(error -> Mono.just(ItemLookup.failed(id, statusOf(error), messageOf(error))));
+        Flux<String> distinctIds = Flux.fromIterable(distinct);
+        return ordered
+                ? distinctIds.flatMapSequential(lookup, parallelism, 1)
+                : distinctIds.flatMap(lookup, parallelism, 1);
+    }
+
+    public Mono<Item> create(Item item) {
+        return createEntity(OPERATION_CREATE, item).flatMap(ItemServerClient::bodyOf);
+    }
+
+    public Mono<Item> update(String id, Item item) {
+        return updateEntity(OPERATION_UPDATE, id, item).flatMap(ItemServerClient::bodyOf);
+    }
+
+    /**
+     * {@link #create(Item)} measured and guarded as {@code operation}, with the item server's response status.
+     */
+    public Mono<ResponseEntity<Item>> createEntity(String operation, Item item) {
+        return webClient.post().uri(ITEM_END_POINT_V1)
+                .accept(APPLICATION_JSON)
+                .bodyValue(item)
+                .retrieve()
+                .toEntity(Item.class)
+                .doOnTerminate(itemListCache::expire)
+                .transform(upstreamMetrics.timedMono(operation))
+                .transform(upstreamPolicies.mono(operation));
+    }
+
+    /**
+     * {@link #update(String, Item)} measured and guarded as {@code operation}, with the item server's response status.
+     */
+    public Mono<ResponseEntity<Item>> updateEntity(String operation, String id, Item item) {
+        return webClient.put().uri(ITEM_END_POINT_V1 + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .bodyValue(item)
+                .retrieve()
+                .toEntity(Item.class)
+                .transform(write -> itemCache.write(id, write))
+                .doOnTerminate(itemListCache::expire)
+                .transform(upstreamMetrics.timedMono(operation))
+                .transform(upstreamPolicies.mono(operation));
+    }
+
+    public Mono<Void> delete(String id) {
+        return webClient.delete().uri(ITEM_END_POINT_V1 + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .retrieve()
+//                .onStatus(        //The same as default behavior
+//                        HttpStatus.NOT_FOUND::equals,
+//                        ClientResponse::createException
+//                )
+//                .onStatus(        //Changing error message
+//                        HttpStatus.NOT_FOUND::equals,
+//                        clientResponse -> Mono.error(new RuntimeException("There was error while deleting"))
+//                )
+                .onStatus(          //Change Message and Status
+                        HttpStatus.NOT_FOUND::equals,
+                        clientResponse -> clientResponse.createException()
+                                .map(exc ->
+                                        new ResponseStatusException(
+                                                HttpStatus.NOT_FOUND,
+                                                "Client received an error: " + exc.getMessage(),
+                                                exc)
+                                )
+                )
+                .onStatus(
+                        HttpStatus::is5xxServerError,
+                        clientResponse -> clientResponse
+                                .bodyToMono(String.class)
+                                .map(RuntimeException::new)
+                )
+                .bodyToMono(Void.class)
+                .transform(write -> itemCache.write(id, write))
+                .doOnTerminate(itemListCache::expire)
+                .transform(upstreamMetrics.timedMono(OPERATION_DELETE))
+                .transform(upstreamPolicies.mono(OPERATION_DELETE));
+    }
+
+    public Flux<Item> retrieveError() {
+        return webClient.get().uri(ITEM_END_POINT_V1 + "/runtimeException")
+                .attribute(TRAFFIC_ATTRIBUTE, Traffic.DIAGNOSTIC)
+                .accept(APPLICATION_JSON)
+                .retrieve()
+                .onStatus(
+                        HttpStatus::is5xxServerError,
+                        clientResponse -> clientResponse
+                                .bodyToMono(String.class)
+                                .map(RuntimeException::new)
+                )
+                .bodyToFlux(Item.class)
+                .transform(upstreamMetrics.timedFlux(OPERATION_ERROR));
+    }
+
+    public Flux<Item> exchangeError() {
+        return webClient.get().uri(ITEM_END_POINT_V1 + "/runtimeException")
+                .attribute(TRAFFIC_ATTRIBUTE, Traffic.DIAGNOSTIC)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .flatMapMany(clientResponse -> {
+                    if (clientResponse.statusCode().is5xxServerError()) {
+                        Mono<String> messageMono = clientResponse.bodyToMono(String.class);
+                        return messageMono.flatMap(message -> {
+                            log.error("Error message is: " + message);
+                            return Mono.error(new RuntimeException(message));
+                        });
+                    } else {
+                        return clientResponse.bodyToFlux(Item.class);
+                    }
+                })
+                .transform(upstreamMetrics.timedFlux(OPERATION_ERROR));
+    }
+
+    /**
+     * HTTP status that best describes a failed item server call.
+     */
+    public static int statusOf(Throwable error) {
+        if (error instanceof WebClientResponseException) return ((WebClientResponseException) error).getRawStatusCode();
+        if (error instanceof ResponseStatusException) return ((ResponseStatusException) error).getStatus().value();
+        if (error instanceof ConcurrencyLimitExceededException) return HttpStatus.SERVICE_UNAVAILABLE.value();
+        return HttpStatus.BAD_GATEWAY.value();
+    }
+
+    public static String messageOf(Throwable error) {
+        if (error instanceof ResponseStatusException) return ((ResponseStatusException) error).getReason();
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private static Mono<Item> bodyOf(ResponseEntity<Item> response) {
+        return Mono.justOrEmpty(response.getBody());
+    }
+
+    private Mono<Item> getOne(String id, Function<WebClient.RequestHeadersSpec<?>, Mono<Item>> read) {
+        return itemCache.get(id, key -> hedging.hedge(OPERATION_GET_BY_ID, () -> read.apply(webClient.get().uri(ITEM_END_POINT_V1 + "/{id}", key)
+                .accept(APPLICATION_JSON))
+                .transform(upstreamMetrics.timedMono(OPERATION_GET_BY_ID)))
+                .transform(upstreamPolicies.mono(OPERATION_GET_BY_ID)));
+    }
+
+    private Flux<Item> getAll(String operation, ItemListQuery query, Function<WebClient.RequestHeadersSpec<?>, Flux<Item>> read) {
+        if (itemListCache.isEnabled())
+            return itemListCache.get(previous -> loadItemList(operation, previous)).transform(query::apply);
+        if (itemListCollapser.isEnabled())
+            return itemListCollapser.get(operation, () -> listItems(operation, read, Function.identity())).transform(query::apply);
+        return listItems(operation, read, query::apply);
+    }
+
+    //the query is applied before metrics and policies, so a limit cancels the upstream call early
+    private Flux<Item> listItems(String operation, Function<WebClient.RequestHeadersSpec<?>, Flux<Item>> read,
+                                 Function<Flux<Item>, Flux<Item>> query) {
+        return read.apply(webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON))
+                .limitRate(LIST_PREFETCH)
+                .transform(query)
+                .transform(upstreamMetrics.timedFlux(operation))
+                .transform(upstreamPolicies.flux(operation));
+    }
+
+    private Mono<ItemListSnapshot> loadItemList(String operation, @Nullable ItemListSnapshot previous) {
+        return webClient.get().uri(ITEM_END_POINT_V1)
+                .accept(APPLICATION_JSON)
+                .headers(headers -> {
+                    if (previous != null) previous.addValidators(headers);
+                })
+                .exchange()
+                .flatMap(ItemListSnapshot::read)
+                .transform(upstreamMetrics.timedMono(operation))
+                .transform(upstreamPolicies.mono(operation));
+    }
+}
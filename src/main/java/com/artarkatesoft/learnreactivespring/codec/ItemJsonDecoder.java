@@ -0,0 +1,308 @@
+package com.artarkatesoft.learnreactivespring.codec;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+
+/**
+ * Reads {@link Item}s directly from the JSON token stream, without the {@code TokenBuffer} and databind steps
+ * of {@code Jackson2JsonDecoder}. A root array (or NDJSON) is decoded incrementally: each item is emitted as
+ * soon as its closing brace arrives, so a large array is never held in memory. Unknown fields are skipped.
+ */
+public class ItemJsonDecoder implements Decoder<Item> {
+
+    private static final List<MimeType> MIME_TYPES = Collections.unmodifiableList(Arrays.asList(
+            APPLICATION_JSON, MimeType.valueOf(APPLICATION_NDJSON_VALUE), APPLICATION_STREAM_JSON));
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Nullable
+    private final StringCache descriptions;
+
+    private int maxInMemorySize = 256 * 1024;
+
+    /**
+     * @param dedupeDescriptions return the same {@code String} instance for a description seen recently,
+     *                           which pays off when many items share a few descriptions
+     */
+    public ItemJsonDecoder(boolean dedupeDescriptions) {
+        this.descriptions = dedupeDescriptions ? new StringCache(1024) : null;
+    }
+
+    /**
+     * Limit on the bytes buffered to read a single item, as for {@code AbstractJackson2Decoder}. A longer body
+     * fails with {@link DataBufferLimitException}. Arrays are decoded item by item and are not limited.
+     */
+    public void setMaxInMemorySize(int byteCount) {
+        this.maxInMemorySize = byteCount;
+    }
+
+    public int getMaxInMemorySize() {
+        return maxInMemorySize;
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        if (elementType.toClass() != Item.class) return false;
+        if (mimeType == null) return true;
+        //the non-blocking Jackson parser reads UTF-8 only
+        Charset charset = mimeType.getCharset();
+        if (charset != null && !StandardCharsets.UTF_8.equals(charset)) return false;
+        return MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public Flux<Item> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                             @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return decode(inputStream, true);
+    }
+
+    @Override
+    public Mono<Item> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                   @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        //a single item is read whole: the streaming operators of decode cost more than the item itself
+        return DataBufferUtils.join(inputStream, maxInMemorySize)
+                .flatMap(buffer -> {
+                    ItemTokenizer tokenizer = new ItemTokenizer(false);
+                    try {
+                        List<Item> fed = tokenizer.feed(buffer);
+                        List<Item> rest = tokenizer.endOfInput();
+                        int count = fed.size() + rest.size();
+                        if (count > 1) return Mono.error(new DecodingException("Expected one " + Item.class.getSimpleName() + " but got " + count));
+                        return Mono.justOrEmpty(count == 0 ? null : fed.isEmpty() ? rest.get(0) : fed.get(0));
+                    } finally {
+                        tokenizer.close();
+                    }
+                });
+    }
+
+    private Flux<Item> decode(Publisher<DataBuffer> input, boolean rootArray) {
+        return Flux.defer(() -> {
+            ItemTokenizer tokenizer = new ItemTokenizer(rootArray);
+            return Flux.from(input)
+                    .concatMapIterable(tokenizer::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(tokenizer.endOfInput())))
+                    .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> tokenizer.close());
+        });
+    }
+
+    /**
+     * Parser state of one response body.
+     */
+    private class ItemTokenizer {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final boolean rootArrayAllowed;
+
+        //all fed bytes are consumed before the parser asks for more, so one array is reused for every buffer
+        private byte[] input = new byte[0];
+
+        private int depth;
+        private boolean inRootArray;
+        //depth of the object being read as an item, -1 between items
+        private int itemDepth = -1;
+        private String field;
+        private String id;
+        private String description;
+        private double price;
+
+        ItemTokenizer(boolean rootArrayAllowed) {
+            try {
+                this.parser = jsonFactory.createNonBlockingByteArrayParser();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.rootArrayAllowed = rootArrayAllowed;
+        }
+
+        List<Item> feed(DataBuffer buffer) {
+            try {
+                int length = buffer.readableByteCount();
+                if (input.length < length) input = new byte[length];
+                buffer.read(input, 0, length);
+                feeder.feedInput(input, 0, length);
+                return parse();
+            } catch (IOException ex) {
+                throw new DecodingException("JSON decoding error: " + ex.getMessage(), ex);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        List<Item> endOfInput() {
+            feeder.endOfInput();
+            try {
+                return parse();
+            } catch (IOException ex) {
+                throw new DecodingException("JSON decoding error: " + ex.getMessage(), ex);
+            }
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                //nothing is held but the parser's own buffers
+            }
+        }
+
+        private List<Item> parse() throws IOException {
+            List<Item> items = Collections.emptyList();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                Item item = next(token);
+                if (item == null) continue;
+                if (items.isEmpty()) items = new ArrayList<>();
+                items.add(item);
+            }
+            return items;
+        }
+
+        @Nullable
+        private Item next(JsonToken token) throws IOException {
+            switch (token) {
+                case START_OBJECT:
+                    depth++;
+                    if (itemDepth < 0) startItem();
+                    return null;
+                case START_ARRAY:
+                    depth++;
+                    if (itemDepth >= 0) return null;
+                    if (depth != 1 || !rootArrayAllowed) throw new DecodingException("Cannot decode " + Item.class.getSimpleName() + " from a JSON array");
+                    inRootArray = true;
+                    return null;
+                case END_OBJECT:
+                    if (depth-- != itemDepth) return null;
+                    itemDepth = -1;
+                    return new Item(id, description, price);
+                case END_ARRAY:
+                    if (depth-- == 1) inRootArray = false;
+                    return null;
+                case FIELD_NAME:
+                    if (depth == itemDepth) field = parser.getCurrentName();
+                    return null;
+                default:
+                    if (itemDepth < 0) throw new DecodingException("Cannot decode " + Item.class.getSimpleName() + " from " + token);
+                    if (depth == itemDepth) value(token);
+                    return null;
+            }
+        }
+
+        private void startItem() {
+            if (depth != (inRootArray ? 2 : 1)) throw new DecodingException("Cannot decode " + Item.class.getSimpleName() + " from a nested object");
+            itemDepth = depth;
+            field = null;
+            id = null;
+            description = null;
+            price = Item.NO_PRICE;
+        }
+
+        private void value(JsonToken token) throws IOException {
+            if (field == null) return;
+            switch (field) {
+                case "id":
+                    id = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                    break;
+                case "description":
+                    if (token == JsonToken.VALUE_NULL) description = null;
+                    else description = descriptions != null && token == JsonToken.VALUE_STRING ? descriptions.get(parser) : parser.getText();
+                    break;
+                case "price":
+                    price = price(token);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private double price(JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return parser.getDoubleValue();
+                case VALUE_NULL:
+                    return Item.NO_PRICE;
+                case VALUE_STRING:
+                    String text = parser.getText().trim();
+                    try {
+                        return text.isEmpty() ? Item.NO_PRICE : Double.parseDouble(text);
+                    } catch (NumberFormatException ex) {
+                        throw new DecodingException("Cannot decode price from \"" + text + "\"", ex);
+                    }
+                default:
+                    throw new DecodingException("Cannot decode price from " + token);
+            }
+        }
+    }
+
+    /**
+     * Direct-mapped table of recently decoded strings, looked up by the parser's characters so that a hit
+     * allocates nothing. Shared by all responses: a racing write only loses an entry, and {@code String}
+     * instances are safe to publish without synchronization.
+     */
+    private static class StringCache {
+
+        private final String[] entries;
+
+        StringCache(int size) {
+            this.entries = new String[Integer.highestOneBit(size)];
+        }
+
+        String get(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) hash = 31 * hash + chars[i];
+            int slot = (hash ^ (hash >>> 16)) & (entries.length - 1);
+            String cached = entries[slot];
+            if (cached != null && matches(cached, chars, offset, length)) return cached;
+            String text = new String(chars, offset, length);
+            entries[slot] = text;
+            return text;
+        }
+
+        private static boolean matches(String cached, char[] chars, int offset, int length) {
+            if (cached.length() != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (cached.charAt(i) != chars[offset + i]) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Fan-out of the bulk create and update endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.bulk")
+public class BulkWriteProperties {
+
+    /**
+     * Item server calls in flight per bulk request when the caller does not ask for a {@code concurrency}.
+     */
+    private int concurrency = 16;
+
+    /**
+     * Upper bound for the {@code concurrency} a caller may ask for.
+     */
+    private int maxConcurrency = 64;
+}
@@ -0,0 +1,56 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+import java.util.Arrays;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.APPLICATION_NDJSON_VALUE;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.APPLICATION_SMILE_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+
+@Configuration
+public class CodecConfig {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    /**
+     * Registers {@code application/x-ndjson} as a streaming JSON type, so every element of a {@code Flux}
+     * is written and flushed as its own line instead of being collected into one JSON array.
+     */
+    @Bean
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+        MimeType[] mimeTypes = {APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON};
+        return configurer -> {
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, mimeTypes);
+            encoder.setStreamingMediaTypes(Arrays.asList(APPLICATION_STREAM_JSON, APPLICATION_NDJSON));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper, mimeTypes));
+        };
+    }
+
+    /**
+     * Adds {@code application/cbor} next to JSON and Smile (which WebFlux registers on its own once
+     * jackson-dataformat-smile is on the classpath). The Spring 5.2 CBOR codec cannot stream, so it is
+     * only chosen for single items; item lists are offered as JSON, NDJSON or Smile.
+     */
+    @Bean
+    public CodecCustomizer cborCodecCustomizer() {
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2CborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper));
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Adaptive limit on concurrent calls to the item server.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = false;
+
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 500;
+
+    /**
+     * How much slower than the long-term average a response may be before the limit shrinks.
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * Weight of each new limit estimate, between 0 and 1.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Number of samples the long-term average response time is taken over.
+     */
+    private int longWindow = 600;
+
+    /**
+     * Factor the limit is multiplied by when a call fails with an I/O error or a timeout.
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Calls over the limit wait up to {@code maxQueueWait} in a queue of this size, then fail with 503.
+     */
+    private int maxQueueSize = 100;
+    private Duration maxQueueWait = Duration.ofMillis(50);
+
+    /**
+     * {@code Retry-After} sent with a 503 for a call over the limit.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
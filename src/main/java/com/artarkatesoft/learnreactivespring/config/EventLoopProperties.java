@@ -0,0 +1,44 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Netty event loops of the server and the item server client. Disabled, both run on Reactor Netty's global loops.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.event-loop")
+public class EventLoopProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Loops that serve requests, and also call the item server when {@code shared}.
+     */
+    private int workerThreads = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+
+    /**
+     * Loops that only accept connections; {@code -1} lets the workers accept them.
+     */
+    private int selectorThreads = -1;
+
+    /**
+     * Call the item server on the server's loops, on the loop of the request when possible, instead of on
+     * {@code clientWorkerThreads} loops of its own.
+     */
+    private boolean shared = true;
+    private int clientWorkerThreads = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+
+    /**
+     * Use the native epoll transport where it is available (Linux with netty-transport-native-epoll), NIO elsewhere.
+     */
+    private boolean preferNative = true;
+
+    /**
+     * Probe every loop for utilization, pending tasks and task delay every {@code metricsInterval}.
+     */
+    private boolean metrics = true;
+    private Duration metricsInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,34 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "itemclient.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Delay before the hedge is sent; also used while the adaptive delay has too few samples.
+     */
+    private Duration delay = Duration.ofMillis(50);
+
+    /**
+     * Derive the delay from the observed latency percentile instead of using the fixed delay.
+     */
+    private boolean adaptive = false;
+    private double percentile = 95.0;
+    private Duration minDelay = Duration.ofMillis(5);
+    private Duration window = Duration.ofSeconds(10);
+    private int minSamples = 100;
+
+    /**
+     * Each primary request earns this many hedge tokens and every hedge spends one, so at most this
+     * fraction of requests is hedged over time.
+     */
+    private double budgetRatio = 0.1;
+    private int budgetMaxTokens = 10;
+}
@@ -0,0 +1,23 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "itemclient.cache.list")
+public class ItemListCacheProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Age after which a read of the item list starts a background revalidation and is served the current copy.
+     */
+    private Duration refreshAfter = Duration.ofSeconds(5);
+
+    /**
+     * Oldest copy that may be served; an older one is revalidated before the read completes.
+     */
+    private Duration maxStale = Duration.ofSeconds(60);
+}
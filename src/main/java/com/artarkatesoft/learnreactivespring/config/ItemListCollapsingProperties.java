@@ -0,0 +1,22 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "itemclient.collapsing.list")
+public class ItemListCollapsingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Items of an in-flight list kept for callers that join late. A call joins only while fewer than half of
+     * these have been emitted; later callers start their own upstream call.
+     */
+    private int maxReplay = 10_000;
+
+    /**
+     * Items a caller may fall behind the shared list before it is cut off instead of holding the others back.
+     */
+    private int maxLag = 1024;
+}
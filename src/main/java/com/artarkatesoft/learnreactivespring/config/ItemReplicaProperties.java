@@ -0,0 +1,18 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "itemclient.replica")
+public class ItemReplicaProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * How often the replica revalidates {@code /v1/items}; an unchanged list (304) is not re-indexed.
+     */
+    private Duration syncInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,175 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "itemclient.itemserver")
+public class ItemServerProperties {
+
+    private String url = "http://localhost:8080";
+
+    /**
+     * Base URLs of several item server instances; when set (or when {@code instancesFile} is set)
+     * requests are balanced across them and {@code url} is only used to build request URIs.
+     */
+    private List<String> instances = new ArrayList<>();
+
+    /**
+     * File with one instance base URL per line, re-read when it changes.
+     */
+    private String instancesFile;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    private Duration writeTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Wire protocol to the item server: HTTP/1.1 over Reactor Netty, or HTTP/2 over the Jetty client,
+     * either cleartext with prior knowledge (H2C) or TLS with ALPN (H2).
+     */
+    private Protocol protocol = Protocol.HTTP11;
+
+    /**
+     * Ask the item server for gzip or deflate compressed responses.
+     */
+    private boolean compression = true;
+
+    /**
+     * Preferred response format for GETs; JSON is always accepted as a fallback.
+     */
+    private Codec codec = Codec.JSON;
+
+    private Pool pool = new Pool();
+    private Http2 http2 = new Http2();
+    private LoadBalancer loadBalancer = new LoadBalancer();
+    private ItemDecoder itemDecoder = new ItemDecoder();
+    private Bulkheads bulkheads = new Bulkheads();
+
+    @Data
+    public static class Pool {
+        private String name = "itemserver";
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private boolean metrics = true;
+    }
+
+    @Data
+    public static class Http2 {
+        /**
+         * Multiplexed connections per item server instance.
+         */
+        private int maxConnections = 2;
+
+        /**
+         * Streams per connection until the server's SETTINGS_MAX_CONCURRENT_STREAMS is received.
+         */
+        private int maxConcurrentStreams = 100;
+
+        private boolean fallbackToHttp11 = true;
+
+        /**
+         * How long an instance that failed HTTP/2 negotiation is called over HTTP/1.1 before HTTP/2 is tried again.
+         */
+        private Duration fallbackRetryInterval = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class LoadBalancer {
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+
+        private int consecutiveFailures = 5;
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+        private int maxEjectionPercent = 50;
+
+        /**
+         * Latency a failed request counts as at least, so an instance that fails fast is not preferred.
+         */
+        private Duration failurePenalty = Duration.ofSeconds(1);
+
+        private boolean healthCheckEnabled = true;
+        private String healthCheckPath = "/actuator/health";
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class ItemDecoder {
+        /**
+         * Decode JSON items with the streaming token-level decoder instead of Jackson databind.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Reuse one {@code String} instance for repeated item descriptions.
+         */
+        private boolean dedupeDescriptions = false;
+    }
+
+    /**
+     * Separate HTTP/1.1 connection pools and concurrency caps per {@link Traffic} class, so slow writes cannot
+     * take the connections cheap reads need. The other {@code pool} settings apply to every bulkhead.
+     */
+    @Data
+    public static class Bulkheads {
+        private boolean enabled = false;
+
+        private Bulkhead read = new Bulkhead(300, 600, 300);
+        private Bulkhead write = new Bulkhead(150, 300, 150);
+        private Bulkhead diagnostic = new Bulkhead(10, 20, 10);
+
+        public Bulkhead forTraffic(Traffic traffic) {
+            switch (traffic) {
+                case WRITE:
+                    return write;
+                case DIAGNOSTIC:
+                    return diagnostic;
+                default:
+                    return read;
+            }
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bulkhead {
+        private int maxConnections;
+        private int pendingAcquireMaxCount;
+
+        /**
+         * Calls in flight until their response headers arrive; further calls fail at once with 503.
+         */
+        private int maxConcurrentCalls;
+    }
+
+    /**
+     * GET, HEAD and OPTIONS calls are reads, other methods are writes; diagnostic calls are marked
+     * with {@code ItemServerBulkheads.TRAFFIC_ATTRIBUTE}.
+     */
+    public enum Traffic {
+        READ, WRITE, DIAGNOSTIC
+    }
+
+    public enum Protocol {
+        HTTP11, H2C, H2
+    }
+
+    public enum Codec {
+        JSON, SMILE
+    }
+
+    public enum Strategy {
+        POWER_OF_TWO_CHOICES, LEAST_OUTSTANDING_REQUESTS
+    }
+}
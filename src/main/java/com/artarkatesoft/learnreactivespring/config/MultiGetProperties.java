@@ -0,0 +1,27 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Limits of {@code /client/retrieve?ids=...}.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.multi-get")
+public class MultiGetProperties {
+
+    /**
+     * Distinct ids per request; more fail the request with 400.
+     */
+    private int maxIds = 500;
+
+    /**
+     * Lookups in flight per request when the caller does not ask for a {@code concurrency}.
+     */
+    private int concurrency = 16;
+
+    /**
+     * Upper bound for the {@code concurrency} a caller may ask for.
+     */
+    private int maxConcurrency = 64;
+}
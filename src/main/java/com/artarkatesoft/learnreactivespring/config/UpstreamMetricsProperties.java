@@ -0,0 +1,17 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "itemclient.metrics")
+public class UpstreamMetricsProperties {
+
+    private boolean percentilesHistogram = true;
+
+    /**
+     * Fraction of upstream calls, from 0.0 to 1.0, whose reactive signals are logged at DEBUG.
+     * Zero switches signal logging off.
+     */
+    private double signalLogSampleRate = 0.0;
+}
@@ -0,0 +1,97 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Timeout, retry and circuit breaker settings for upstream calls.
+ * An entry under {@code operations} overrides {@code defaults} for that operation field by field: settings it
+ * leaves out keep their default.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.policies")
+public class UpstreamPolicyProperties {
+
+    private Policy defaults = Policy.defaults();
+    private Map<String, Policy> operations = new HashMap<>();
+
+    public Policy forOperation(String operation) {
+        Policy override = operations.get(operation);
+        return override == null ? defaults : override.orElse(defaults);
+    }
+
+    /**
+     * Unset ({@code null}) fields of an override fall back to {@code defaults}.
+     */
+    @Data
+    public static class Policy {
+        /**
+         * Time to the response of a single-item call, or to the first item of a list call.
+         */
+        private Duration timeout;
+
+        /**
+         * Retries after the first attempt; only used for idempotent operations.
+         */
+        private Integer maxRetries;
+        private Duration retryBackoff;
+        private Duration retryMaxBackoff;
+        private Double retryJitter;
+
+        private Boolean circuitBreakerEnabled;
+        private Float failureRateThreshold;
+        private Float slowCallRateThreshold;
+        private Duration slowCallDurationThreshold;
+        private Integer slidingWindowSize;
+        private Integer minimumNumberOfCalls;
+        private Duration waitDurationInOpenState;
+        private Integer permittedCallsInHalfOpenState;
+
+        public static Policy defaults() {
+            Policy policy = new Policy();
+            policy.timeout = Duration.ofSeconds(5);
+            policy.maxRetries = 2;
+            policy.retryBackoff = Duration.ofMillis(50);
+            policy.retryMaxBackoff = Duration.ofSeconds(1);
+            policy.retryJitter = 0.5;
+            policy.circuitBreakerEnabled = true;
+            policy.failureRateThreshold = 50f;
+            policy.slowCallRateThreshold = 100f;
+            policy.slowCallDurationThreshold = Duration.ofSeconds(5);
+            policy.slidingWindowSize = 50;
+            policy.minimumNumberOfCalls = 20;
+            policy.waitDurationInOpenState = Duration.ofSeconds(10);
+            policy.permittedCallsInHalfOpenState = 5;
+            return policy;
+        }
+
+        /**
+         * This policy with its unset fields taken from {@code fallback}.
+         */
+        public Policy orElse(Policy fallback) {
+            Policy merged = new Policy();
+            merged.timeout = or(timeout, fallback.timeout);
+            merged.maxRetries = or(maxRetries, fallback.maxRetries);
+            merged.retryBackoff = or(retryBackoff, fallback.retryBackoff);
+            merged.retryMaxBackoff = or(retryMaxBackoff, fallback.retryMaxBackoff);
+            merged.retryJitter = or(retryJitter, fallback.retryJitter);
+            merged.circuitBreakerEnabled = or(circuitBreakerEnabled, fallback.circuitBreakerEnabled);
+            merged.failureRateThreshold = or(failureRateThreshold, fallback.failureRateThreshold);
+            merged.slowCallRateThreshold = or(slowCallRateThreshold, fallback.slowCallRateThreshold);
+            merged.slowCallDurationThreshold = or(slowCallDurationThreshold, fallback.slowCallDurationThreshold);
+            merged.slidingWindowSize = or(slidingWindowSize, fallback.slidingWindowSize);
+            merged.minimumNumberOfCalls = or(minimumNumberOfCalls, fallback.minimumNumberOfCalls);
+            merged.waitDurationInOpenState = or(waitDurationInOpenState, fallback.waitDurationInOpenState);
+            merged.permittedCallsInHalfOpenState = or(permittedCallsInHalfOpenState, fallback.permittedCallsInHalfOpenState);
+            return merged;
+        }
+
+        private static <T> T or(T value, T fallback) {
+            return value != null ? value : fallback;
+        }
+    }
+}
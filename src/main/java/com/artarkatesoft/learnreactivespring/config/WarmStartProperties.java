@@ -0,0 +1,33 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the item list on local disk, restored on start so the client does not start cold.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.warm-start")
+public class WarmStartProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Snapshot file; its directory is created if missing.
+     */
+    private String file = "data/warm-start/items.snapshot";
+
+    /**
+     * How often the current item list is written, when it changed or was revalidated since the last write.
+     * It is also written on shutdown.
+     */
+    private Duration writeInterval = Duration.ofMinutes(1);
+
+    /**
+     * A snapshot fetched from the item server longer ago than this is not restored, and single items are no
+     * longer served from it.
+     */
+    private Duration maxAge = Duration.ofHours(1);
+}
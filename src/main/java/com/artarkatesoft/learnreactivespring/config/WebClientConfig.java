@@ -0,0 +1,159 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import com.artarkatesoft.learnreactivespring.codec.ItemJsonDecoder;
+import com.artarkatesoft.learnreactivespring.connector.BulkheadConnector;
+import com.artarkatesoft.learnreactivespring.connector.Http2FallbackConnector;
+import com.artarkatesoft.learnreactivespring.eventloop.EventLoops;
+import com.artarkatesoft.learnreactivespring.loadbalancer.ItemServerLoadBalancer;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.ConcurrencyLimiter;
+import com.artarkatesoft.learnreactivespring.resilience.ItemServerBulkheads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.artarkatesoft.learnreactivespring.config.CodecConfig.APPLICATION_SMILE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@Configuration
+public class WebClientConfig {
+
+    /**
+     * Request attribute marking calls whose Accept header comes from the caller and must reach the item server as is.
+     */
+    public static final String CALLER_ACCEPT_ATTRIBUTE = WebClientConfig.class.getName() + ".callerAccept";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider itemServerConnectionProvider(ItemServerProperties properties) {
+        ItemServerProperties.Pool pool = properties.getPool();
+        return connectionProvider(pool.getName(), pool, pool.getMaxConnections(), pool.getPendingAcquireMaxCount());
+    }
+
+    @Bean
+    public HttpClient itemServerHttpClient(ConnectionProvider itemServerConnectionProvider, ItemServerProperties properties,
+                                           EventLoops eventLoops) {
+        return httpClient(itemServerConnectionProvider, properties, eventLoops);
+    }
+
+    @Bean
+    public ItemServerLoadBalancer itemServerLoadBalancer(ItemServerProperties properties, MeterRegistry meterRegistry,
+                                                         HttpClient itemServerHttpClient) {
+        WebClient healthCheckClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(itemServerHttpClient))
+                .build();
+        return new ItemServerLoadBalancer(properties, meterRegistry, healthCheckClient);
+    }
+
+    @Bean
+    public ClientHttpConnector itemServerConnector(HttpClient itemServerHttpClient, ItemServerProperties properties,
+                                                   MeterRegistry meterRegistry, EventLoops eventLoops) {
+        ClientHttpConnector http11 = properties.getBulkheads().isEnabled()
+                ? bulkheadConnector(properties, eventLoops)
+                : new ReactorClientHttpConnector(itemServerHttpClient);
+        if (properties.getProtocol() == ItemServerProperties.Protocol.HTTP11) return http11;
+        return new Http2FallbackConnector(properties, http11, meterRegistry);
+    }
+
+    @Bean
+    public WebClient itemServerWebClient(WebClient.Builder builder, ClientHttpConnector itemServerConnector,
+                                         ItemServerProperties properties, UpstreamMetrics upstreamMetrics,
+                                         ItemServerLoadBalancer itemServerLoadBalancer, ConcurrencyLimiter concurrencyLimiter,
+                                         ItemServerBulkheads itemServerBulkheads) {
+        builder.baseUrl(properties.getUrl())
+                .filter(upstreamMetrics.statusRecorder())
+                .clientConnector(itemServerConnector);
+        ItemServerProperties.ItemDecoder itemDecoder = properties.getItemDecoder();
+        //an Item-only decoder is registered as a typed reader, so it is asked before the generic Jackson one
+        //and takes the spring.codec.max-in-memory-size the default codecs get
+        if (itemDecoder.isEnabled()) {
+            ItemJsonDecoder decoder = new ItemJsonDecoder(itemDecoder.isDedupeDescriptions());
+            builder.codecs(codecs -> codecs.customCodecs().registerWithDefaultConfig(decoder, config -> {
+                if (config.maxInMemorySize() != null) decoder.setMaxInMemorySize(config.maxInMemorySize());
+            }));
+        }
+        //ahead of the adaptive limit, so calls shed by a full bulkhead are not taken as latency samples
+        if (itemServerBulkheads.isEnabled()) builder.filter(itemServerBulkheads.filter());
+        //ahead of instance selection: one limit covers all item server instances
+        if (concurrencyLimiter.isEnabled()) builder.filter(concurrencyLimiter.filter());
+        if (properties.getCodec() == ItemServerProperties.Codec.SMILE) builder.filter(preferAccept(APPLICATION_SMILE));
+        //registered last so that every retry or hedge picks its instance again
+        if (itemServerLoadBalancer.isEnabled()) builder.filter(itemServerLoadBalancer.filter());
+        return builder.build();
+    }
+
+    private static BulkheadConnector bulkheadConnector(ItemServerProperties properties, EventLoops eventLoops) {
+        ItemServerProperties.Pool pool = properties.getPool();
+        Map<ItemServerProperties.Traffic, ConnectionProvider> pools = new EnumMap<>(ItemServerProperties.Traffic.class);
+        for (ItemServerProperties.Traffic traffic : ItemServerProperties.Traffic.values()) {
+            ItemServerProperties.Bulkhead bulkhead = properties.getBulkheads().forTraffic(traffic);
+            String name = pool.getName() + "-" + traffic.name().toLowerCase(Locale.ROOT);
+            pools.put(traffic, connectionProvider(name, pool, bulkhead.getMaxConnections(), bulkhead.getPendingAcquireMaxCount()));
+        }
+        return new BulkheadConnector(pools, provider -> httpClient(provider, properties, eventLoops));
+    }
+
+    private static ConnectionProvider connectionProvider(String name, ItemServerProperties.Pool pool,
+                                                         int maxConnections, int pendingAcquireMaxCount) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                //registers active, idle, pending and total connection gauges in the global Micrometer registry
+                .metrics(pool.isMetrics())
+                .build();
+    }
+
+    private static HttpClient httpClient(ConnectionProvider connectionProvider, ItemServerProperties properties,
+                                         EventLoops eventLoops) {
+        long readTimeoutMillis = properties.getReadTimeout().toMillis();
+        long writeTimeoutMillis = properties.getWriteTimeout().toMillis();
+        //on the server's event loops when they are shared, so a call stays on the loop of the request that made it
+        return eventLoops.configure(HttpClient.create(connectionProvider))
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis()))
+                //decompresses gzip and deflate response bodies before they reach the codecs
+                .compress(properties.isCompression())
+                //handlers added per request are removed when the connection goes back to the pool,
+                //so idle pooled connections are governed by maxIdleTime only
+                .doOnRequest((request, connection) -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeoutMillis, TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(writeTimeoutMillis, TimeUnit.MILLISECONDS)));
+    }
+
+    /**
+     * Offers {@code preferred} ahead of JSON on requests that accept JSON only, so a server that cannot
+     * produce it still answers with JSON.
+     */
+    static ExchangeFilterFunction preferAccept(MediaType preferred) {
+        List<MediaType> accept = Arrays.asList(preferred, new MediaType(APPLICATION_JSON, Collections.singletonMap("q", "0.9")));
+        return (request, next) -> {
+            if (request.attribute(CALLER_ACCEPT_ATTRIBUTE).isPresent()
+                    || !request.headers().getAccept().equals(Collections.singletonList(APPLICATION_JSON)))
+                return next.exchange(request);
+            return next.exchange(ClientRequest.from(request)
+                    .headers(headers -> headers.setAccept(accept))
+                    .build());
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Asynchronous item creation through a local journal.
+ */
+@Data
+@ConfigurationProperties(prefix = "itemclient.write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Directory of the journal file; created if missing.
+     */
+    private String directory = "data/write-behind";
+
+    /**
+     * Size of the memory-mapped journal. Accepted items that are not yet created must fit; it starts over
+     * once all of them are, and is compacted when it fills up while some still are not.
+     */
+    private DataSize journalSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Force every accepted item to disk before answering 202. Items accepted concurrently share one force.
+     */
+    private boolean fsync = true;
+
+    /**
+     * How often the drainer takes up to {@code batchSize} pending items and sends them, {@code concurrency} at a time.
+     */
+    private Duration drainInterval = Duration.ofMillis(200);
+    private int batchSize = 64;
+    private int concurrency = 8;
+
+    /**
+     * Attempts per item before it is marked failed; 4xx answers other than 408 and 429 fail it at once.
+     */
+    private int maxAttempts = 10;
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    private Duration retryMaxBackoff = Duration.ofMinutes(1);
+
+    /**
+     * How long the outcome of a finished item stays available from the status endpoint.
+     */
+    private Duration statusRetention = Duration.ofHours(1);
+    private int maxStatuses = 100_000;
+}
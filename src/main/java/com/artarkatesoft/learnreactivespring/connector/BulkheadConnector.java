@@ -0,0 +1,48 @@
+package com.artarkatesoft.learnreactivespring.connector;
+
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties.Traffic;
+import com.artarkatesoft.learnreactivespring.resilience.ItemServerBulkheads;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * HTTP/1.1 connector with one connection pool per {@link Traffic} class.
+ * <p>
+ * The class is taken from the subscriber context set by {@link ItemServerBulkheads#filter()}, or from the
+ * HTTP method when there is none, so a flood of writes can only exhaust the write pool.
+ */
+public class BulkheadConnector implements ClientHttpConnector, DisposableBean {
+
+    private final Map<Traffic, ConnectionProvider> pools;
+    private final Map<Traffic, ClientHttpConnector> connectors = new EnumMap<>(Traffic.class);
+
+    public BulkheadConnector(Map<Traffic, ConnectionProvider> pools, Function<ConnectionProvider, HttpClient> httpClient) {
+        this.pools = pools;
+        pools.forEach((traffic, pool) -> connectors.put(traffic, new ReactorClientHttpConnector(httpClient.apply(pool))));
+    }
+
+    @Override
+    public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                                            Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+        return Mono.subscriberContext()
+                .flatMap(context -> connectors.get(ItemServerBulkheads.trafficOf(context, method))
+                        .connect(method, uri, requestCallback));
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(ConnectionProvider::dispose);
+    }
+}
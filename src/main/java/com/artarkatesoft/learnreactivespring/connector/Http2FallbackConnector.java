@@ -0,0 +1,173 @@
+package com.artarkatesoft.learnreactivespring.connector;
+
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpConversation;
+import org.eclipse.jetty.client.HttpRequest;
+import org.eclipse.jetty.client.MultiplexConnectionPool;
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.JettyClientHttpConnector;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * HTTP/2 connector to the item server with a fallback to HTTP/1.1.
+ * <p>
+ * Requests are multiplexed as streams over a few Jetty HTTP/2 connections per instance. If protocol negotiation
+ * with an instance fails (ALPN, or the connection preface for h2c) and the instance has not answered over HTTP/2
+ * before, the server never saw the request, so it is sent again over the HTTP/1.1 connector. That instance is then
+ * called over HTTP/1.1 until {@code fallbackRetryInterval} has passed. Any other failure, such as a timeout or a
+ * reset, is left to the caller's policies: it may have reached the server, and a POST must not be sent twice.
+ * A response that stays silent for {@code readTimeout} fails, as on the HTTP/1.1 connector.
+ */
+@Slf4j
+public class Http2FallbackConnector implements ClientHttpConnector, DisposableBean {
+
+    public static final String FALLBACKS_METRIC = "itemclient.itemserver.protocol.fallbacks";
+
+    private final HttpClient jettyClient;
+    private final ClientHttpConnector http2;
+    private final ClientHttpConnector http11;
+    private final ItemServerProperties.Http2 settings;
+    private final MeterRegistry meterRegistry;
+    //keyed by scheme, host and port: one instance without HTTP/2 does not downgrade the others
+    private final ConcurrentMap<String, Destination> destinations = new ConcurrentHashMap<>();
+
+    public Http2FallbackConnector(ItemServerProperties properties, ClientHttpConnector http11, MeterRegistry meterRegistry) {
+        this.settings = properties.getHttp2();
+        this.http11 = http11;
+        this.meterRegistry = meterRegistry;
+        this.jettyClient = jettyClient(properties);
+        this.http2 = new JettyClientHttpConnector(jettyClient);
+    }
+
+    private static HttpClient jettyClient(ItemServerProperties properties) {
+        ItemServerProperties.Http2 http2 = properties.getHttp2();
+        HttpClientTransportOverHTTP2 transport = new NegotiationTrackingTransport();
+        //h2 negotiates the protocol via ALPN, h2c talks HTTP/2 right away (prior knowledge)
+        transport.setUseALPN(properties.getProtocol() == ItemServerProperties.Protocol.H2);
+        transport.setConnectionPoolFactory(destination -> new MultiplexConnectionPool(
+                destination, http2.getMaxConnections(), destination, http2.getMaxConcurrentStreams()));
+        long readTimeoutMillis = properties.getReadTimeout().toMillis();
+        HttpClient client = new HttpClient(transport, new SslContextFactory.Client()) {
+            //the same limit on a silent response as the ReadTimeoutHandler of the HTTP/1.1 connector
+            @Override
+            protected HttpRequest newHttpRequest(HttpConversation conversation, URI uri) {
+                HttpRequest request = super.newHttpRequest(conversation, uri);
+                request.idleTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+                return request;
+            }
+        };
+        client.setMaxConnectionsPerDestination(http2.getMaxConnections());
+        client.setMaxRequestsQueuedPerDestination(properties.getPool().getPendingAcquireMaxCount());
+        client.setConnectTimeout(properties.getConnectTimeout().toMillis());
+        client.setIdleTimeout(properties.getPool().getMaxIdleTime().toMillis());
+        client.setFollowRedirects(false);
+        //Jetty asks for gzip and decodes it by default
+        if (!properties.isCompression()) client.getContentDecoderFactories().clear();
+        try {
+            client.start();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot start HTTP/2 client", e);
+        }
+        return client;
+    }
+
+    @Override
+    public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                                            Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+        Destination destination = destinations.computeIfAbsent(
+                uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort(), key -> new Destination());
+        if (destination.onHttp11) {
+            if (System.nanoTime() - destination.http11UntilNanos < 0) return http11.connect(method, uri, requestCallback);
+            destination.onHttp11 = false;
+        }
+        Mono<ClientHttpResponse> response = http2.connect(method, uri, requestCallback);
+        if (!settings.isFallbackToHttp11()) return response;
+        return response
+                .doOnNext(answered -> destination.speaksHttp2 = true)
+                .onErrorResume(error -> !destination.speaksHttp2 && isNegotiationFailure(error), error -> {
+                    if (!destination.onHttp11) {
+                        log.warn("HTTP/2 negotiation with {} failed, falling back to HTTP/1.1 for {}",
+                                uri.getAuthority(), settings.getFallbackRetryInterval(), error);
+                        meterRegistry.counter(FALLBACKS_METRIC).increment();
+                    }
+                    destination.http11UntilNanos = System.nanoTime() + settings.getFallbackRetryInterval().toNanos();
+                    destination.onHttp11 = true;
+                    return http11.connect(method, uri, requestCallback);
+                });
+    }
+
+    static boolean isNegotiationFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NegotiationException) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        jettyClient.stop();
+        if (http11 instanceof DisposableBean) ((DisposableBean) http11).destroy();
+    }
+
+    /**
+     * A connection failed after the TCP connect and before the HTTP/2 session was up: the TLS handshake or ALPN
+     * failed, or the server did not answer the h2c preface with its settings. No request was sent on it.
+     */
+    static final class NegotiationException extends IOException {
+        NegotiationException(Throwable cause) {
+            super("HTTP/2 negotiation failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Jetty fails the connection promise of every request waiting for a new connection with the error that ended
+     * it, but only until the server preface arrives; after that a failure reaches the requests through their
+     * streams. So a failed promise of a connection that got past the TCP connect is a negotiation failure.
+     */
+    private static final class NegotiationTrackingTransport extends HttpClientTransportOverHTTP2 {
+
+        NegotiationTrackingTransport() {
+            super(new HTTP2Client());
+        }
+
+        @Override
+        public org.eclipse.jetty.io.Connection newConnection(EndPoint endPoint, Map<String, Object> context) throws IOException {
+            @SuppressWarnings("unchecked")
+            Promise<Connection> promise = (Promise<Connection>) context.get(HTTP_CONNECTION_PROMISE_CONTEXT_KEY);
+            context.put(HTTP_CONNECTION_PROMISE_CONTEXT_KEY, new Promise.Wrapper<Connection>(promise) {
+                @Override
+                public void failed(Throwable x) {
+                    super.failed(new NegotiationException(x));
+                }
+            });
+            return super.newConnection(endPoint, context);
+        }
+    }
+
+    private static final class Destination {
+        private volatile boolean speaksHttp2;
+        private volatile boolean onHttp11;
+        private volatile long http11UntilNanos;
+    }
+}
@@ -3,4 +3,22 @@ package com.artarkatesoft.learnreactivespring.constants;
 public class ItemConstants {
     public static final String ITEM_END_POINT_V1 = "/v1/items";
     public static final String ITEM_FUNCTIONAL_END_POINT_V1 = "/v1/fun/items";
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
+    public static final String OPERATION_RETRIEVE = "retrieve";
+    public static final String OPERATION_EXCHANGE = "exchange";
+    public static final String OPERATION_GET_BY_ID = "get-by-id";
+    public static final String OPERATION_CREATE = "create";
+    public static final String OPERATION_UPDATE = "update";
+    public static final String OPERATION_DELETE = "delete";
+    public static final String OPERATION_ERROR = "error";
+    public static final String OPERATION_PASSTHROUGH_RETRIEVE = "passthrough-retrieve";
+    public static final String OPERATION_PASSTHROUGH_GET_BY_ID = "passthrough-get-by-id";
+    public static final String OPERATION_REPLICA_SYNC = "replica-sync";
+    public static final String OPERATION_BULK_CREATE = "bulk-create";
+    public static final String OPERATION_BULK_UPDATE = "bulk-update";
+    public static final String OPERATION_WRITE_BEHIND_CREATE = "write-behind-create";
 }
@@ -0,0 +1,84 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.config.BulkWriteProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.function.Function;
+
+import static com.artarkatesoft.learnreactivespring.client.ItemServerClient.messageOf;
+import static com.artarkatesoft.learnreactivespring.client.ItemServerClient.statusOf;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON_VALUE;
+
+/**
+ * Creates or updates many items per request. The body is a JSON array or NDJSON stream of items, decoded
+ * as it arrives; every item is sent to the item server on its own, at most {@code concurrency} at a time,
+ * and its {@link ItemWriteResult} is streamed back as soon as that call completes, in completion order
+ * unless {@code ordered=true}. A failed item does not stop the others. Each call is the same
+ * {@link ItemServerClient} write as a single create or update, under the bulk operation tags.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ItemBulkController {
+
+    private final ItemServerClient itemServerClient;
+    private final BulkWriteProperties properties;
+
+    @PostMapping(value = "/client/bulk/createItems",
+            consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE},
+            produces = {APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE})
+    public Flux<ItemWriteResult> createItems(@RequestBody Flux<Item> items,
+                                             @RequestParam(required = false) Integer concurrency,
+                                             @RequestParam(defaultValue = "false") boolean ordered) {
+        return fanOut(items, concurrency, ordered, (index, item) -> itemServerClient.createEntity(OPERATION_BULK_CREATE, item)
+                .map(response -> ItemWriteResult.success(index, idOf(response, item), response.getStatusCodeValue())));
+    }
+
+    @PutMapping(value = "/client/bulk/updateItems",
+            consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE},
+            produces = {APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE})
+    public Flux<ItemWriteResult> updateItems(@RequestBody Flux<Item> items,
+                                             @RequestParam(required = false) Integer concurrency,
+                                             @RequestParam(defaultValue = "false") boolean ordered) {
+        return fanOut(items, concurrency, ordered, (index, item) -> {
+            if (item.getId() == null)
+                return Mono.just(ItemWriteResult.failure(index, null, HttpStatus.BAD_REQUEST.value(), "Item has no id"));
+            return itemServerClient.updateEntity(OPERATION_BULK_UPDATE, item.getId(), item)
+                    .map(response -> ItemWriteResult.success(index, item.getId(), response.getStatusCodeValue()));
+        });
+    }
+
+    private Flux<ItemWriteResult> fanOut(Flux<Item> items, Integer concurrency, boolean ordered, ItemWrite write) {
+        int parallelism = Math.max(1, Math.min(concurrency == null ? properties.getConcurrency() : concurrency,
+                properties.getMaxConcurrency()));
+        Function<Tuple2<Long, Item>, Mono<ItemWriteResult>> writeOne = indexed -> write
+                .apply(indexed.getT1(), indexed.getT2())
+                .onErrorResume(error -> Mono.just(ItemWriteResult.failure(
+                        indexed.getT1(), indexed.getT2().getId(), statusOf(error), messageOf(error))));
+        Flux<Tuple2<Long, Item>> indexed = items.index();
+        //items are requested from the body only as calls complete, so the batch is never held in memory
+        return ordered
+                ? indexed.flatMapSequential(writeOne, parallelism, 1)
+                : indexed.flatMap(writeOne, parallelism, 1);
+    }
+
+    private static String idOf(ResponseEntity<Item> response, Item item) {
+        Item body = response.getBody();
+        return body != null && body.getId() != null ? body.getId() : item.getId();
+    }
+
+    @FunctionalInterface
+    private interface ItemWrite {
+        Mono<ItemWriteResult> apply(long index, Item item);
+    }
+}
@@ -1,164 +1,88 @@
 package com.artarkatesoft.learnreactivespring.controllers;
 
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
 import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemListQuery;
+import com.artarkatesoft.learnreactivespring.domain.ItemLookup;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
-import static org.springframework.http.MediaType.APPLICATION_JSON;
+import java.util.List;
 
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+import static org.springframework.http.MediaType.*;
+
+/**
+ * Annotated mapping of the client API; switched off with {@code itemclient.api.style=functional} in favour of
+ * {@link ItemClientRoutes}.
+ */
 @RestController
 @RequiredArgsConstructor
-@Slf4j
+@ConditionalOnProperty(name = ItemClientRoutes.STYLE_PROPERTY, havingValue = "annotated", matchIfMissing = true)
 public class ItemClientController {
 
-    private String itemServerUrl;
-
-    private WebClient webClient;
+    private final ItemServerClient itemServerClient;
 
-    @Value("${itemclient.itemserver.url}")
-    public void setItemServerUrl(String itemServerUrl) {
-        this.itemServerUrl = itemServerUrl;
-        webClient = WebClient.create(itemServerUrl);
+    @GetMapping(value = "/client/retrieve", produces = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE, TEXT_EVENT_STREAM_VALUE,
+            APPLICATION_SMILE_VALUE, APPLICATION_STREAM_SMILE_VALUE})
+    public Flux<Item> getAllItemsUsingRetrieve(ItemListQuery query) {
+        return itemServerClient.getAllUsingRetrieve(query);
     }
 
-    @GetMapping("/client/retrieve")
-    public Flux<Item> getAllItemsUsingRetrieve() {
-        return webClient.get().uri(ITEM_END_POINT_V1)
-                .accept(APPLICATION_JSON)
-                .retrieve()
-                .bodyToFlux(Item.class)
-                .log("Items in Client Project retrieve");
+    @GetMapping(value = "/client/exchange", produces = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE, TEXT_EVENT_STREAM_VALUE,
+            APPLICATION_SMILE_VALUE, APPLICATION_STREAM_SMILE_VALUE})
+    public Flux<Item> getAllItemsUsingExchange(ItemListQuery query) {
+        return itemServerClient.getAllUsingExchange(query);
     }
 
-    @GetMapping("/client/exchange")
-    public Flux<Item> getAllItemsUsingExchange() {
-        return webClient.get().uri(ITEM_END_POINT_V1)
-                .accept(APPLICATION_JSON)
-                .exchange()
-                .flatMapMany(clientResponse -> clientResponse.bodyToFlux(Item.class))
-                .log("Items in Client Project exchange");
+    @GetMapping(value = "/client/retrieve", params = "ids", produces = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE, APPLICATION_STREAM_JSON_VALUE})
+    public Flux<ItemLookup> getItemsUsingRetrieve(@RequestParam List<String> ids,
+                                                  @RequestParam(required = false) Integer concurrency,
+                                                  @RequestParam(defaultValue = "true") boolean ordered) {
+        return itemServerClient.getMany(ids, concurrency, ordered);
     }
 
     @GetMapping("/client/retrieve/{id}")
     public Mono<Item> getOneItemUsingRetrieve(@PathVariable String id) {
-        return webClient.get().uri(ITEM_END_POINT_V1 + "/{id}", id)
-                .accept(APPLICATION_JSON)
-                .retrieve()
-                .bodyToMono(Item.class)
-                .log("Client Project retrieve Single Item");
+        return itemServerClient.getOne(id);
     }
 
     @GetMapping("/client/exchange/{id}")
     public Mono<Item> getOneItemUsingExchange(@PathVariable String id) {
-        return webClient.get().uri(ITEM_END_POINT_V1 + "/{id}", id)
-                .accept(APPLICATION_JSON)
-                .exchange()
-                .flatMap(clientResponse -> clientResponse.bodyToMono(Item.class))
-                .log("Client Project exchange Single Item");
+        return itemServerClient.getOneUsingExchange(id);
     }
 
     @GetMapping("/client/post")
     public Mono<Item> postOneItem(@RequestParam(required = false) String description, @RequestParam(required = false) Double price) {
-        Item newItem = new Item(null, description, price);
-        return webClient.post().uri(ITEM_END_POINT_V1)
-                .accept(APPLICATION_JSON)
-                .bodyValue(newItem)
-                .retrieve()
-                .bodyToMono(Item.class)
-                .log("Client Project post new Item");
+        return itemServerClient.create(new Item(null, description, Item.price(price)));
     }
 
     @PostMapping("/client/createItem")
     public Mono<Item> createItem(@RequestBody Item item) {
-        return webClient.post().uri(ITEM_END_POINT_V1)
-                .accept(APPLICATION_JSON)
-                .bodyValue(item)
-                .retrieve()
-                .bodyToMono(Item.class)
-                .log("Client Project post new Item");
+        return itemServerClient.create(item);
     }
 
     @PutMapping("/client/updateItem/{id}")
     public Mono<Item> updateItem(@RequestBody Item item, @PathVariable String id) {
-        return webClient.put().uri(ITEM_END_POINT_V1 + "/{id}", id)
-                .accept(APPLICATION_JSON)
-                .bodyValue(item)
-                .retrieve()
-                .bodyToMono(Item.class)
-                .log("Client Project update Item");
+        return itemServerClient.update(id, item);
     }
 
     @DeleteMapping("/client/deleteItem/{id}")
     public Mono<Void> deleteItem(@PathVariable String id) {
-        return webClient.delete().uri(ITEM_END_POINT_V1 + "/{id}", id)
-                .accept(APPLICATION_JSON)
-                .retrieve()
-//                .onStatus(        //The same as default behavior
-//                        HttpStatus.NOT_FOUND::equals,
-//                        ClientResponse::createException
-//                )
-//                .onStatus(        //Changing error message
-//                        HttpStatus.NOT_FOUND::equals,
-//                        clientResponse -> Mono.error(new RuntimeException("There was error while deleting"))
-//                )
-                .onStatus(          //Change Message and Status
-                        HttpStatus.NOT_FOUND::equals,
-                        clientResponse -> clientResponse.createException()
-                                .map(exc ->
-                                        new ResponseStatusException(
-                                                HttpStatus.NOT_FOUND,
-                                                "Client received an error: " + exc.getMessage(),
-                                                exc)
-                                )
-                )
-                .onStatus(
-                        HttpStatus::is5xxServerError,
-                        clientResponse -> clientResponse
-                                .bodyToMono(String.class)
-                                .map(RuntimeException::new)
-                )
-                .bodyToMono(Void.class)
-                .log("Client Project delete Item");
+        return itemServerClient.delete(id);
     }
 
     @GetMapping("/client/retrieve/error")
     public Flux<Item> retrieveError() {
-        return webClient.get().uri(ITEM_END_POINT_V1 + "/runtimeException")
-                .accept(APPLICATION_JSON)
-                .retrieve()
-                .onStatus(
-                        HttpStatus::is5xxServerError,
-                        clientResponse -> clientResponse
-                                .bodyToMono(String.class)
-                                .map(RuntimeException::new)
-                )
-                .bodyToFlux(Item.class);
+        return itemServerClient.retrieveError();
     }
 
     @GetMapping("/client/exchange/error")
     public Flux<Item> exchangeError() {
-        return webClient.get().uri(ITEM_END_POINT_V1 + "/runtimeException")
-                .accept(APPLICATION_JSON)
-                .exchange()
-                .flatMapMany(clientResponse -> {
-                    if (clientResponse.statusCode().is5xxServerError()) {
-                        Mono<String> messageMono = clientResponse.bodyToMono(String.class);
-                        return messageMono.flatMap(message -> {
-                            log.error("Error message is: " + message);
-                            return Mono.error(new RuntimeException(message));
-                        });
-                    } else {
-                        return clientResponse.bodyToFlux(Item.class);
-                    }
-                });
+        return itemServerClient.exchangeError();
     }
 
 }
@@ -0,0 +1,155 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemListQuery;
+import com.artarkatesoft.learnreactivespring.domain.ItemLookup;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.artarkatesoft.learnreactivespring.config.CodecConfig.APPLICATION_NDJSON;
+import static com.artarkatesoft.learnreactivespring.config.CodecConfig.APPLICATION_SMILE;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.APPLICATION_STREAM_SMILE_VALUE;
+import static org.springframework.http.MediaType.*;
+
+/**
+ * Handler functions of the client API for {@link ItemClientRoutes}, over the same {@link ItemServerClient}
+ * as {@link ItemClientController}. Parameters are read and converted by hand instead of by argument resolvers,
+ * and the response type is chosen from {@code Accept} among the types the annotated mapping produces.
+ */
+public class ItemClientHandler {
+
+    private static final List<MediaType> ITEM_LIST_TYPES = Arrays.asList(APPLICATION_JSON, APPLICATION_NDJSON,
+            APPLICATION_STREAM_JSON, TEXT_EVENT_STREAM, APPLICATION_SMILE, MediaType.valueOf(APPLICATION_STREAM_SMILE_VALUE));
+    private static final List<MediaType> ITEM_LOOKUP_TYPES = Arrays.asList(APPLICATION_JSON, APPLICATION_NDJSON, APPLICATION_STREAM_JSON);
+    private static final List<MediaType> ITEM_TYPES = Arrays.asList(APPLICATION_JSON, APPLICATION_SMILE, MediaType.valueOf("application/cbor"));
+
+    private static final ConversionService CONVERSION = DefaultConversionService.getSharedInstance();
+
+    private final ItemServerClient itemServerClient;
+
+    public ItemClientHandler(ItemServerClient itemServerClient) {
+        this.itemServerClient = itemServerClient;
+    }
+
+    public Mono<ServerResponse> getAllItemsUsingRetrieve(ServerRequest request) {
+        return Mono.defer(() -> items(request, ITEM_LIST_TYPES, itemServerClient.getAllUsingRetrieve(query(request)), Item.class));
+    }
+
+    public Mono<ServerResponse> getAllItemsUsingExchange(ServerRequest request) {
+        return Mono.defer(() -> items(request, ITEM_LIST_TYPES, itemServerClient.getAllUsingExchange(query(request)), Item.class));
+    }
+
+    public Mono<ServerResponse> getItemsUsingRetrieve(ServerRequest request) {
+        return Mono.defer(() -> {
+            List<String> ids = new ArrayList<>();
+            for (String value : request.queryParams().getOrDefault("ids", Collections.emptyList()))
+                ids.addAll(Arrays.asList(StringUtils.commaDelimitedListToStringArray(value)));
+            Boolean ordered = param(request, "ordered", Boolean.class);
+            Flux<ItemLookup> lookups = itemServerClient.getMany(ids, param(request, "concurrency", Integer.class),
+                    ordered == null || ordered);
+            return items(request, ITEM_LOOKUP_TYPES, lookups, ItemLookup.class);
+        });
+    }
+
+    public Mono<ServerResponse> getOneItemUsingRetrieve(ServerRequest request) {
+        return item(request, itemServerClient.getOne(request.pathVariable("id")));
+    }
+
+    public Mono<ServerResponse> getOneItemUsingExchange(ServerRequest request) {
+        return item(request, itemServerClient.getOneUsingExchange(request.pathVariable("id")));
+    }
+
+    public Mono<ServerResponse> postOneItem(ServerRequest request) {
+        return Mono.defer(() -> {
+            Item newItem = new Item(null, request.queryParam("description").orElse(null),
+                    Item.price(param(request, "price", Double.class)));
+            return item(request, itemServerClient.create(newItem));
+        });
+    }
+
+    public Mono<ServerResponse> createItem(ServerRequest request) {
+        return item(request, body(request).flatMap(itemServerClient::create));
+    }
+
+    public Mono<ServerResponse> updateItem(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return item(request, body(request).flatMap(item -> itemServerClient.update(id, item)));
+    }
+
+    public Mono<ServerResponse> deleteItem(ServerRequest request) {
+        return itemServerClient.delete(request.pathVariable("id"))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> retrieveError(ServerRequest request) {
+        return items(request, ITEM_LIST_TYPES, itemServerClient.retrieveError(), Item.class);
+    }
+
+    public Mono<ServerResponse> exchangeError(ServerRequest request) {
+        return items(request, ITEM_LIST_TYPES, itemServerClient.exchangeError(), Item.class);
+    }
+
+    private static <T> Mono<ServerResponse> items(ServerRequest request, List<MediaType> producible, Flux<T> items, Class<T> type) {
+        return ServerResponse.ok().contentType(contentType(request, producible)).body(items, type);
+    }
+
+    private static Mono<ServerResponse> item(ServerRequest request, Mono<Item> item) {
+        return Mono.defer(() -> ServerResponse.ok().contentType(contentType(request, ITEM_TYPES)).body(item, Item.class));
+    }
+
+    private static Mono<Item> body(ServerRequest request) {
+        return request.bodyToMono(Item.class)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new ServerWebInputException("Request body is missing"))));
+    }
+
+    private static ItemListQuery query(ServerRequest request) {
+        ItemListQuery query = new ItemListQuery();
+        query.setLimit(param(request, "limit", Integer.class));
+        Long offset = param(request, "offset", Long.class);
+        query.setOffset(offset == null ? 0 : offset);
+        query.setMinPrice(param(request, "minPrice", Double.class));
+        query.setMaxPrice(param(request, "maxPrice", Double.class));
+        query.setDescription(request.queryParam("description").orElse(null));
+        return query;
+    }
+
+    //the conversions request parameter binding uses, so both styles accept and reject the same values
+    @Nullable
+    private static <T> T param(ServerRequest request, String name, Class<T> type) {
+        String value = request.queryParam(name).orElse(null);
+        if (!StringUtils.hasText(value)) return null;
+        try {
+            return CONVERSION.convert(value.trim(), type);
+        } catch (ConversionException e) {
+            throw new ServerWebInputException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    private static MediaType contentType(ServerRequest request, List<MediaType> producible) {
+        List<MediaType> accepted = new ArrayList<>(request.headers().accept());
+        if (accepted.isEmpty()) return producible.get(0);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptable : accepted) {
+            for (MediaType candidate : producible) {
+                if (acceptable.isCompatibleWith(candidate)) return candidate;
+            }
+        }
+        throw new NotAcceptableStatusException(producible);
+    }
+}
@@ -0,0 +1,51 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Functional mapping of the client API, used instead of {@link ItemClientController} with
+ * {@code itemclient.api.style=functional}.
+ * <p>
+ * Registered through {@code META-INF/spring.factories}, so the handler and router beans are defined with
+ * suppliers before the context refreshes: no classpath scanning, no reflective handler lookup.
+ */
+public class ItemClientRoutes implements ApplicationContextInitializer<GenericApplicationContext> {
+
+    public static final String STYLE_PROPERTY = "itemclient.api.style";
+    public static final String ROUTER_BEAN = "itemClientRouter";
+
+    @Override
+    public void initialize(GenericApplicationContext context) {
+        if (!"functional".equalsIgnoreCase(context.getEnvironment().getProperty(STYLE_PROPERTY, "annotated"))) return;
+        context.registerBean(ItemClientHandler.class, () -> new ItemClientHandler(context.getBean(ItemServerClient.class)));
+        context.registerBean(ROUTER_BEAN, RouterFunction.class, () -> routes(context.getBean(ItemClientHandler.class)));
+    }
+
+    /**
+     * The same paths, methods and parameters as {@link ItemClientController}. Routes are tried in order,
+     * so literal paths come before the {@code {id}} patterns they would match. Calls shed by the concurrency
+     * limit are answered by {@link UpstreamExceptionHandler}, as for the annotated mapping.
+     */
+    public static RouterFunction<ServerResponse> routes(ItemClientHandler handler) {
+        return route()
+                .GET("/client/retrieve", queryParam("ids", ids -> true), handler::getItemsUsingRetrieve)
+                .GET("/client/retrieve", handler::getAllItemsUsingRetrieve)
+                .GET("/client/exchange", handler::getAllItemsUsingExchange)
+                .GET("/client/retrieve/error", handler::retrieveError)
+                .GET("/client/exchange/error", handler::exchangeError)
+                .GET("/client/retrieve/{id}", handler::getOneItemUsingRetrieve)
+                .GET("/client/exchange/{id}", handler::getOneItemUsingExchange)
+                .GET("/client/post", handler::postOneItem)
+                .POST("/client/createItem", handler::createItem)
+                .PUT("/client/updateItem/{id}", handler::updateItem)
+                .DELETE("/client/deleteItem/{id}", handler::deleteItem)
+                .build();
+    }
+}
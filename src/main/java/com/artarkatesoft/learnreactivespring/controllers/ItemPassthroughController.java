@@ -0,0 +1,79 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.artarkatesoft.learnreactivespring.config.WebClientConfig.CALLER_ACCEPT_ATTRIBUTE;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Read endpoints that relay the item server's response body as it arrives, without decoding it into items
+ * and encoding them again. Use them when the caller needs the items unchanged; the caller's Accept header
+ * is forwarded, so the item server picks the format.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ItemPassthroughController {
+
+    private static final List<String> RELAYED_HEADERS = Arrays.asList(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL);
+
+    private final WebClient webClient;
+    private final UpstreamMetrics upstreamMetrics;
+    private final UpstreamPolicies upstreamPolicies;
+
+    @GetMapping("/client/passthrough/retrieve")
+    public Mono<Void> getAllItems(ServerHttpRequest request, ServerHttpResponse response) {
+        return relay(OPERATION_PASSTHROUGH_RETRIEVE, webClient.get().uri(ITEM_END_POINT_V1), request, response);
+    }
+
+    @GetMapping("/client/passthrough/retrieve/{id}")
+    public Mono<Void> getOneItem(@PathVariable String id, ServerHttpRequest request, ServerHttpResponse response) {
+        return relay(OPERATION_PASSTHROUGH_GET_BY_ID, webClient.get().uri(ITEM_END_POINT_V1 + "/{id}", id), request, response);
+    }
+
+    private Mono<Void> relay(String operation, WebClient.RequestHeadersSpec<?> upstreamRequest,
+                             ServerHttpRequest request, ServerHttpResponse response) {
+        List<MediaType> accept = request.getHeaders().getAccept();
+        return upstreamRequest
+                .headers(headers -> headers.setAccept(accept.isEmpty() ? Collections.singletonList(APPLICATION_JSON) : accept))
+                .attribute(CALLER_ACCEPT_ATTRIBUTE, true)
+                .exchange()
+                //5xx goes through the policies like in the decoding endpoints, everything else is relayed
+                .flatMap(clientResponse -> clientResponse.rawStatusCode() >= 500
+                        ? clientResponse.createException().flatMap(Mono::error)
+                        : Mono.just(clientResponse))
+                .transform(upstreamPolicies.mono(operation))
+                //policies wrap the exchange only: once the body is being written a retry would send it twice
+                .flatMap(clientResponse -> {
+                    response.setRawStatusCode(clientResponse.rawStatusCode());
+                    HttpHeaders upstreamHeaders = clientResponse.headers().asHttpHeaders();
+                    RELAYED_HEADERS.forEach(name -> {
+                        List<String> values = upstreamHeaders.get(name);
+                        if (values != null) response.getHeaders().put(name, values);
+                    });
+                    //buffers queued but not yet written when the caller goes away or the write fails
+                    return response.writeWith(clientResponse.body(BodyExtractors.toDataBuffers())
+                            .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release));
+                })
+                .transform(upstreamMetrics.timedMono(operation));
+    }
+}
@@ -0,0 +1,69 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.replica.ItemCatalogReplica;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Queries answered from the local {@link ItemCatalogReplica} without calling the item server.
+ * They fail with 503 while the replica is disabled or not loaded yet.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ItemQueryController {
+
+    private static final String DEFAULT_LIMIT = "100";
+
+    private final ItemCatalogReplica replica;
+
+    @GetMapping("/client/query/items/{id}")
+    public Mono<Item> getItem(@PathVariable String id) {
+        return Mono.fromSupplier(() -> {
+            checkLoaded();
+            Item item = replica.get(id);
+            if (item == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No item with id " + id);
+            return item;
+        });
+    }
+
+    @GetMapping("/client/query/price")
+    public Flux<Item> getItemsByPrice(@RequestParam(defaultValue = "0") double min,
+                                      @RequestParam(defaultValue = "" + Double.MAX_VALUE) double max,
+                                      @RequestParam(defaultValue = DEFAULT_LIMIT) int limit) {
+        return query(() -> replica.priceBetween(min, max, limit));
+    }
+
+    @GetMapping("/client/query/cheapest")
+    public Flux<Item> getCheapestItems(@RequestParam(defaultValue = "10") int limit) {
+        return query(() -> replica.cheapest(limit));
+    }
+
+    @GetMapping("/client/query/description")
+    public Flux<Item> getItemsByDescriptionPrefix(@RequestParam String prefix,
+                                                  @RequestParam(defaultValue = DEFAULT_LIMIT) int limit) {
+        return query(() -> replica.descriptionStartsWith(prefix, limit));
+    }
+
+    private Flux<Item> query(Supplier<List<Item>> query) {
+        return Flux.defer(() -> {
+            checkLoaded();
+            return Flux.fromIterable(query.get());
+        });
+    }
+
+    private void checkLoaded() {
+        if (!replica.isEnabled()) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Item replica is disabled");
+        if (!replica.isLoaded()) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Item replica is not loaded yet");
+    }
+}
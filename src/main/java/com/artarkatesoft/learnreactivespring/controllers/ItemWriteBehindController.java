@@ -0,0 +1,47 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.WriteBehindStatus;
+import com.artarkatesoft.learnreactivespring.writebehind.WriteBehindQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Asynchronous item creation: the item is journaled locally and acknowledged with 202 and a tracking id,
+ * then created on the item server in the background. Fails with 503 while write-behind is disabled.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ItemWriteBehindController {
+
+    private static final String STATUS_PATH = "/client/async/status/{trackingId}";
+
+    private final WriteBehindQueue writeBehindQueue;
+
+    @PostMapping("/client/async/createItem")
+    public Mono<ResponseEntity<WriteBehindStatus>> createItem(@RequestBody Item item) {
+        return Mono.defer(() -> {
+            checkEnabled();
+            return writeBehindQueue.submit(item);
+        }).map(status -> ResponseEntity.accepted()
+                .location(UriComponentsBuilder.fromPath(STATUS_PATH).build(status.getTrackingId()))
+                .body(status));
+    }
+
+    @GetMapping(STATUS_PATH)
+    public Mono<WriteBehindStatus> getStatus(@PathVariable String trackingId) {
+        return Mono.defer(() -> {
+            checkEnabled();
+            return writeBehindQueue.status(trackingId);
+        }).switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No write with tracking id " + trackingId)));
+    }
+
+    private void checkEnabled() {
+        if (!writeBehindQueue.isEnabled()) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write-behind is disabled");
+    }
+}
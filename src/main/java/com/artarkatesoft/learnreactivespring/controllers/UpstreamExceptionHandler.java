@@ -0,0 +1,41 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.resilience.ConcurrencyLimitExceededException;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps upstream failures that need response headers, which {@code ResponseStatusException} cannot carry here.
+ * <p>
+ * A {@link WebExceptionHandler} rather than an {@code @ExceptionHandler}, so that it serves both API styles:
+ * the functional routes write their body after the handler has returned, where {@code RouterFunction.onError}
+ * no longer sees the upstream error. Ordered before Spring Boot's {@code ErrorWebExceptionHandler}.
+ */
+@Component
+@Order(-2)
+public class UpstreamExceptionHandler implements WebExceptionHandler {
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (!(ex instanceof ConcurrencyLimitExceededException) || response.isCommitted()) return Mono.error(ex);
+        ConcurrencyLimitExceededException exception = (ConcurrencyLimitExceededException) ex;
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        //the response may already carry the content type of the body that failed
+        headers.setContentType(MediaType.TEXT_PLAIN);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        byte[] body = String.valueOf(exception.getMessage()).getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+}
@@ -1,14 +1,59 @@
 package com.artarkatesoft.learnreactivespring.domain;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.NumberDeserializers;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.IOException;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Item {
+
+    /**
+     * Price of an item that has none; it is {@code null} in JSON. Check it with {@link #hasPrice()}.
+     */
+    public static final double NO_PRICE = Double.NaN;
+
     private String id;
     private String description;
-    private Double price;
+
+    @JsonSerialize(using = PriceSerializer.class)
+    @JsonDeserialize(using = PriceDeserializer.class)
+    private double price = NO_PRICE;
+
+    public boolean hasPrice() {
+        return !Double.isNaN(price);
+    }
+
+    public static double price(Double price) {
+        return price == null ? NO_PRICE : price;
+    }
+
+    static class PriceSerializer extends StdSerializer<Double> {
+
+        PriceSerializer() {
+            super(Double.class);
+        }
+
+        @Override
+        public void serialize(Double value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (Double.isNaN(value)) generator.writeNull();
+            else generator.writeNumber(value);
+        }
+    }
+
+    static class PriceDeserializer extends NumberDeserializers.DoubleDeserializer {
+
+        PriceDeserializer() {
+            super(Double.class, NO_PRICE);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.artarkatesoft.learnreactivespring.domain;
+
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/**
+ * Optional query parameters of the item list endpoints, applied while the list streams.
+ */
+@Data
+public class ItemListQuery {
+
+    private Integer limit;
+    private long offset;
+    private Double minPrice;
+    private Double maxPrice;
+
+    /**
+     * Case-insensitive substring of the description.
+     */
+    private String description;
+
+    /**
+     * Filters, skips and limits {@code items}. Once the limit is reached the source is cancelled,
+     * so an upstream response still being read is abandoned rather than drained.
+     */
+    public Flux<Item> apply(Flux<Item> items) {
+        if (limit != null && limit < 0 || offset < 0)
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit and offset must not be negative"));
+        if (limit != null && limit == 0) return Flux.empty();
+        Flux<Item> result = items;
+        if (minPrice != null || maxPrice != null || description != null) result = result.filter(this::matches);
+        if (offset > 0) result = result.skip(offset);
+        if (limit != null) result = result.take(limit);
+        return result;
+    }
+
+    private boolean matches(Item item) {
+        if (minPrice != null && !(item.hasPrice() && item.getPrice() >= minPrice)) return false;
+        if (maxPrice != null && !(item.hasPrice() && item.getPrice() <= maxPrice)) return false;
+        return description == null || item.getDescription() != null && containsIgnoreCase(item.getDescription(), description);
+    }
+
+    private static boolean containsIgnoreCase(String text, String part) {
+        for (int i = 0; i <= text.length() - part.length(); i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.artarkatesoft.learnreactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of looking up one id of a multi-get: the item with status 200, or the status and error of the lookup.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemLookup {
+
+    private String id;
+    private int status;
+    private Item item;
+    private String error;
+
+    public static ItemLookup found(String id, Item item) {
+        return new ItemLookup(id, 200, item, null);
+    }
+
+    public static ItemLookup failed(String id, int status, String error) {
+        return new ItemLookup(id, status, null, error);
+    }
+}
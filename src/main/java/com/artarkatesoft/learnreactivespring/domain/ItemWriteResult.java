@@ -0,0 +1,29 @@
+package com.artarkatesoft.learnreactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of writing one item of a bulk request; {@code index} is the item's position in the request body.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemWriteResult {
+
+    private long index;
+    private String id;
+    private int status;
+    private String error;
+
+    public static ItemWriteResult success(long index, String id, int status) {
+        return new ItemWriteResult(index, id, status, null);
+    }
+
+    public static ItemWriteResult failure(long index, String id, int status, String error) {
+        return new ItemWriteResult(index, id, status, error);
+    }
+}
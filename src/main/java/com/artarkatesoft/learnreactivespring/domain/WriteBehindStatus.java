@@ -0,0 +1,26 @@
+package com.artarkatesoft.learnreactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of an item accepted for asynchronous creation; {@code itemId} is set once it is created.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WriteBehindStatus {
+
+    private String trackingId;
+    private State state;
+    private String itemId;
+    private int attempts;
+    private String error;
+
+    public enum State {
+        PENDING, CREATED, FAILED
+    }
+}
@@ -0,0 +1,221 @@
+package com.artarkatesoft.learnreactivespring.eventloop;
+
+import com.artarkatesoft.learnreactivespring.config.EventLoopProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loops of the server and of the item server {@link HttpClient}s.
+ * <p>
+ * Enabled, the server runs on {@code workerThreads} loops of its own, on the native epoll transport where it is
+ * available, instead of on Reactor Netty's global loops. With {@code shared} the item server is called on the same
+ * loops, colocated on the loop of the request that makes the call, so a request and its upstream calls stay on one
+ * thread; otherwise on {@code clientWorkerThreads} loops of their own. Every {@code metricsInterval} each loop runs a
+ * probe task, giving per group the loops' busy share of wall time from their thread CPU time, the tasks waiting in
+ * their queues and how long the probe waited to run.
+ */
+@Slf4j
+@Component
+public class EventLoops implements NettyServerCustomizer {
+
+    public static final String UTILIZATION_METRIC = "itemclient.eventloop.utilization";
+    public static final String MAX_UTILIZATION_METRIC = "itemclient.eventloop.utilization.max";
+    public static final String PENDING_TASKS_METRIC = "itemclient.eventloop.pending.tasks";
+    public static final String TASK_DELAY_METRIC = "itemclient.eventloop.task.delay";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final EventLoopProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final LoopResources serverLoops;
+    private final LoopResources clientLoops;
+    private final List<LoopGroupProbe> probes = new ArrayList<>();
+    private Disposable schedule;
+
+    public EventLoops(EventLoopProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        if (!properties.isEnabled()) {
+            serverLoops = null;
+            clientLoops = null;
+            return;
+        }
+        //daemon threads, as Reactor Netty's own loops: the web server keeps the JVM alive, not its loops
+        serverLoops = properties.getSelectorThreads() < 1
+                ? LoopResources.create("itemclient-server", properties.getWorkerThreads(), true)
+                : LoopResources.create("itemclient-server", properties.getSelectorThreads(), properties.getWorkerThreads(), true);
+        clientLoops = properties.isShared()
+                ? serverLoops
+                : LoopResources.create("itemclient-client", properties.getClientWorkerThreads(), true);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Whether the loops run on the native transport rather than on NIO.
+     */
+    public boolean isNative() {
+        return isEnabled() && properties.isPreferNative() && LoopResources.hasNativeSupport();
+    }
+
+    /**
+     * Applied by the embedded Netty server factory.
+     */
+    @Override
+    public HttpServer apply(HttpServer server) {
+        if (!isEnabled()) return server;
+        return server.tcpConfiguration(tcpServer -> tcpServer.runOn(serverLoops, properties.isPreferNative()));
+    }
+
+    public HttpClient configure(HttpClient client) {
+        if (!isEnabled()) return client;
+        return client.tcpConfiguration(tcpClient -> tcpClient.runOn(clientLoops, properties.isPreferNative()));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) return;
+        log.info("Event loops: {} server workers, {}, {} transport", properties.getWorkerThreads(),
+                properties.isShared() ? "shared with the item server client" : properties.getClientWorkerThreads() + " client workers",
+                isNative() ? "native epoll" : "NIO");
+        if (!properties.isMetrics()) return;
+        //the client side of a LoopResources is colocated on its server workers, so those are the loops to probe
+        probes.add(new LoopGroupProbe("server", serverLoops.onServer(properties.isPreferNative())));
+        if (!properties.isShared())
+            probes.add(new LoopGroupProbe("client", clientLoops.onServer(properties.isPreferNative())));
+        schedule = Flux.interval(properties.getMetricsInterval())
+                .onBackpressureDrop()
+                .subscribe(tick -> sample());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) schedule.dispose();
+        if (!isEnabled()) return;
+        //the web server has stopped by now; the item server clients are not used any longer
+        serverLoops.dispose();
+        if (clientLoops != serverLoops) clientLoops.dispose();
+    }
+
+    void sample() {
+        for (LoopGroupProbe probe : probes) probe.sample();
+    }
+
+    private final class LoopGroupProbe {
+
+        private final List<LoopProbe> loops = new ArrayList<>();
+        private final Timer taskDelay;
+        private volatile double utilization = Double.NaN;
+        private volatile double maxUtilization = Double.NaN;
+
+        LoopGroupProbe(String group, EventLoopGroup eventLoopGroup) {
+            for (EventExecutor executor : eventLoopGroup) loops.add(new LoopProbe(executor));
+            taskDelay = Timer.builder(TASK_DELAY_METRIC)
+                    .tag("group", group)
+                    .description("Time a task submitted to an event loop waited before it ran")
+                    .register(meterRegistry);
+            Gauge.builder(UTILIZATION_METRIC, this, probe -> probe.utilization)
+                    .tag("group", group)
+                    .description("Average share of wall time the event loops spent on CPU")
+                    .register(meterRegistry);
+            Gauge.builder(MAX_UTILIZATION_METRIC, this, probe -> probe.maxUtilization)
+                    .tag("group", group)
+                    .description("Share of wall time the busiest event loop spent on CPU")
+                    .register(meterRegistry);
+            Gauge.builder(PENDING_TASKS_METRIC, this, LoopGroupProbe::pendingTasks)
+                    .tag("group", group)
+                    .description("Tasks waiting in the event loops' queues")
+                    .register(meterRegistry);
+        }
+
+        void sample() {
+            double sum = 0;
+            double max = Double.NaN;
+            int sampled = 0;
+            for (LoopProbe loop : loops) {
+                loop.probe(taskDelay);
+                double loopUtilization = loop.utilization();
+                if (Double.isNaN(loopUtilization)) continue;
+                sum += loopUtilization;
+                max = sampled == 0 ? loopUtilization : Math.max(max, loopUtilization);
+                sampled++;
+            }
+            utilization = sampled == 0 ? Double.NaN : sum / sampled;
+            maxUtilization = max;
+        }
+
+        double pendingTasks() {
+            long pending = 0;
+            for (LoopProbe loop : loops) pending += loop.pendingTasks();
+            return pending;
+        }
+    }
+
+    private static final class LoopProbe {
+
+        private final EventExecutor executor;
+        //learnt from the first probe task, as a loop starts its thread lazily
+        private volatile long threadId = -1;
+        private long lastCpuNanos = -1;
+        private long lastWallNanos;
+
+        LoopProbe(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        void probe(Timer taskDelay) {
+            if (executor.isShuttingDown()) return;
+            long submitted = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    taskDelay.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                    threadId = Thread.currentThread().getId();
+                });
+            } catch (RejectedExecutionException e) {
+                //shutting down between the check and the submit
+            }
+        }
+
+        //busy share of wall time since the previous sample, NaN until two samples of a known thread
+        double utilization() {
+            long id = threadId;
+            if (id < 0 || !THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) return Double.NaN;
+            long cpuNanos = THREADS.getThreadCpuTime(id);
+            long wallNanos = System.nanoTime();
+            if (cpuNanos < 0) return Double.NaN;
+            double utilization = lastCpuNanos < 0 || wallNanos == lastWallNanos
+                    ? Double.NaN
+                    : Math.min(1.0, (double) (cpuNanos - lastCpuNanos) / (wallNanos - lastWallNanos));
+            lastCpuNanos = cpuNanos;
+            lastWallNanos = wallNanos;
+            return utilization;
+        }
+
+        int pendingTasks() {
+            return executor instanceof SingleThreadEventExecutor ? ((SingleThreadEventExecutor) executor).pendingTasks() : 0;
+        }
+    }
+}
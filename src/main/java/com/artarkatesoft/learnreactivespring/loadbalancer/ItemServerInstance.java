@@ -0,0 +1,104 @@
+package com.artarkatesoft.learnreactivespring.loadbalancer;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One item server instance with the live statistics the balancer routes on.
+ */
+public class ItemServerInstance {
+
+    private static final double EWMA_WEIGHT = 0.3;
+
+    private final URI uri;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private double ewmaLatencyNanos;
+    private volatile boolean healthy = true;
+    private volatile boolean ejected;
+    private volatile long ejectedUntilNanos;
+    private int ejections;
+
+    public ItemServerInstance(URI uri) {
+        this.uri = uri;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized double getEwmaLatencyNanos() {
+        return ewmaLatencyNanos;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public boolean isEjected() {
+        if (ejected && System.nanoTime() - ejectedUntilNanos >= 0) ejected = false;
+        return ejected;
+    }
+
+    boolean isAvailable() {
+        return healthy && !isEjected();
+    }
+
+    /**
+     * Expected cost of one more request: outstanding requests weighted by recent latency.
+     */
+    double load() {
+        return (getInFlight() + 1) * Math.max(getEwmaLatencyNanos(), 1);
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * The request's response body was read, or it failed or was cancelled.
+     */
+    void finished() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Records the time to the response. A failure counts as at least {@code failurePenaltyNanos}, so an instance
+     * that fails fast does not look cheap and draw more traffic.
+     *
+     * @return consecutive failures so far, zero after a success
+     */
+    int responded(long latencyNanos, boolean success, long failurePenaltyNanos) {
+        long sample = success ? latencyNanos : Math.max(latencyNanos, failurePenaltyNanos);
+        synchronized (this) {
+            ewmaLatencyNanos = ewmaLatencyNanos == 0
+                    ? sample
+                    : ewmaLatencyNanos + EWMA_WEIGHT * (sample - ewmaLatencyNanos);
+        }
+        if (success) {
+            consecutiveFailures.set(0);
+            return 0;
+        }
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    synchronized void eject(long baseNanos, long maxNanos) {
+        ejections++;
+        ejectedUntilNanos = System.nanoTime() + Math.min(maxNanos, baseNanos * ejections);
+        ejected = true;
+        consecutiveFailures.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
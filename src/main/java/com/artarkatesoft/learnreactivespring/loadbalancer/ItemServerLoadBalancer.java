@@ -0,0 +1,224 @@
+package com.artarkatesoft.learnreactivespring.loadbalancer;
+
+import com.artarkatesoft.learnreactivespring.client.ClientResponses;
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Client-side balancing across item server instances.
+ * <p>
+ * Each request goes to the better of two random available instances (or the least loaded one), scored by
+ * in-flight requests times latency EWMA. A request is in flight until its response body has been read, and a
+ * failure counts as at least {@code failure-penalty} of latency. Instances with repeated 5xx/I/O failures are
+ * ejected for a growing time, and periodic health checks take failing instances out of rotation. Reactor Netty
+ * keeps a separate connection pool per remote address, so every instance has its own pool.
+ */
+@Slf4j
+public class ItemServerLoadBalancer {
+
+    public static final String IN_FLIGHT_METRIC = "itemclient.lb.inflight";
+    public static final String AVAILABLE_METRIC = "itemclient.lb.available";
+    public static final String EJECTIONS_METRIC = "itemclient.lb.ejections";
+
+    private final ItemServerProperties properties;
+    private final ItemServerProperties.LoadBalancer settings;
+    private final MeterRegistry meterRegistry;
+    private final WebClient healthCheckClient;
+    private final AtomicReference<List<ItemServerInstance>> instances = new AtomicReference<>(Collections.emptyList());
+    private final Map<URI, List<Meter>> instanceMeters = new HashMap<>();
+    private FileTime instancesFileModified;
+    private Disposable maintenance;
+
+    public ItemServerLoadBalancer(ItemServerProperties properties, MeterRegistry meterRegistry, WebClient healthCheckClient) {
+        this.properties = properties;
+        this.settings = properties.getLoadBalancer();
+        this.meterRegistry = meterRegistry;
+        this.healthCheckClient = healthCheckClient;
+        if (!properties.getInstances().isEmpty()) updateInstances(properties.getInstances());
+        reloadInstancesFile();
+    }
+
+    public boolean isEnabled() {
+        return !properties.getInstances().isEmpty() || properties.getInstancesFile() != null;
+    }
+
+    public List<ItemServerInstance> getInstances() {
+        return instances.get();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) return;
+        maintenance = Flux.interval(settings.getHealthCheckInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromRunnable(this::reloadInstancesFile)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(settings.isHealthCheckEnabled() ? checkHealth() : Mono.empty())
+                        .onErrorResume(e -> {
+                            log.warn("Item server instance maintenance failed", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintenance != null) maintenance.dispose();
+    }
+
+    public ItemServerInstance choose() {
+        List<ItemServerInstance> all = instances.get();
+        if (all.isEmpty()) throw new IllegalStateException("No item server instances configured");
+        List<ItemServerInstance> candidates = all.stream()
+                .filter(ItemServerInstance::isAvailable)
+                .collect(Collectors.toList());
+        //with nothing available route anyway rather than fail every request
+        if (candidates.isEmpty()) candidates = all;
+        if (candidates.size() == 1) return candidates.get(0);
+        if (settings.getStrategy() == ItemServerProperties.Strategy.LEAST_OUTSTANDING_REQUESTS)
+            return candidates.stream().min(Comparator.comparingDouble(ItemServerInstance::load)).get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) second++;
+        ItemServerInstance a = candidates.get(first);
+        ItemServerInstance b = candidates.get(second);
+        return a.load() <= b.load() ? a : b;
+    }
+
+    /**
+     * Routes each request to the chosen instance and feeds the outcome back into its statistics.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.defer(() -> {
+            ItemServerInstance instance = choose();
+            URI target = instance.getUri();
+            URI routed = UriComponentsBuilder.fromUri(request.url())
+                    .scheme(target.getScheme())
+                    .host(target.getHost())
+                    .port(target.getPort())
+                    .build(true)
+                    .toUri();
+            long start = System.nanoTime();
+            instance.started();
+            //a cancelled body read also cancels the exchange, so both may report the call finished
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable finished = () -> {
+                if (done.compareAndSet(false, true)) instance.finished();
+            };
+            return next.exchange(ClientRequest.from(request).url(routed).build())
+                    .map(response -> {
+                        responded(instance, start, response.rawStatusCode() < 500);
+                        return ClientResponses.doOnBodyDone(response, finished);
+                    })
+                    .doOnError(error -> {
+                        responded(instance, start, false);
+                        finished.run();
+                    })
+                    .doOnCancel(finished);
+        });
+    }
+
+    void responded(ItemServerInstance instance, long startNanos, boolean success) {
+        int failures = instance.responded(System.nanoTime() - startNanos, success, settings.getFailurePenalty().toNanos());
+        if (failures >= settings.getConsecutiveFailures() && mayEject()) {
+            instance.eject(settings.getBaseEjectionTime().toNanos(), settings.getMaxEjectionTime().toNanos());
+            meterRegistry.counter(EJECTIONS_METRIC, "instance", instance.toString()).increment();
+            log.warn("Ejected item server instance {} after {} consecutive failures", instance, failures);
+        }
+    }
+
+    private boolean mayEject() {
+        List<ItemServerInstance> all = instances.get();
+        long ejected = all.stream().filter(ItemServerInstance::isEjected).count();
+        return (ejected + 1) * 100 <= (long) all.size() * settings.getMaxEjectionPercent();
+    }
+
+    private Mono<Void> checkHealth() {
+        return Flux.fromIterable(instances.get())
+                .flatMap(instance -> healthCheckClient.get()
+                        .uri(instance.getUri().resolve(settings.getHealthCheckPath()))
+                        .exchange()
+                        .flatMap(response -> response.releaseBody().thenReturn(response.rawStatusCode() < 500))
+                        .timeout(settings.getHealthCheckTimeout())
+                        .onErrorReturn(false)
+                        .doOnNext(healthy -> {
+                            if (healthy != instance.isHealthy())
+                                log.info("Item server instance {} is now {}", instance, healthy ? "healthy" : "unhealthy");
+                            instance.setHealthy(healthy);
+                        }))
+                .then();
+    }
+
+    private void reloadInstancesFile() {
+        if (properties.getInstancesFile() == null) return;
+        Path file = Paths.get(properties.getInstancesFile());
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.equals(instancesFileModified)) return;
+            List<String> urls = Files.readAllLines(file).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toList());
+            updateInstances(urls);
+            instancesFileModified = modified;
+            log.info("Loaded item server instances {} from {}", urls, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read item server instances from " + file, e);
+        }
+    }
+
+    private synchronized void updateInstances(List<String> urls) {
+        Map<URI, ItemServerInstance> current = instances.get().stream()
+                .collect(Collectors.toMap(ItemServerInstance::getUri, Function.identity()));
+        List<ItemServerInstance> updated = new ArrayList<>();
+        for (String url : urls) {
+            URI uri = URI.create(url);
+            ItemServerInstance instance = current.remove(uri);
+            if (instance == null) {
+                instance = new ItemServerInstance(uri);
+                registerMeters(instance);
+            }
+            updated.add(instance);
+        }
+        current.keySet().forEach(uri -> instanceMeters.remove(uri).forEach(meterRegistry::remove));
+        instances.set(Collections.unmodifiableList(updated));
+    }
+
+    private void registerMeters(ItemServerInstance instance) {
+        instanceMeters.put(instance.getUri(), Arrays.asList(
+                Gauge.builder(IN_FLIGHT_METRIC, instance, ItemServerInstance::getInFlight)
+                        .tag("instance", instance.toString())
+                        .register(meterRegistry),
+                Gauge.builder(AVAILABLE_METRIC, instance, i -> i.isAvailable() ? 1 : 0)
+                        .tag("instance", instance.toString())
+                        .register(meterRegistry)));
+    }
+}
@@ -0,0 +1,163 @@
+package com.artarkatesoft.learnreactivespring.metrics;
+
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Times every upstream call per operation and counts the items it emits.
+ * <p>
+ * Use with {@code transform}: {@code webClient.get()...bodyToFlux(Item.class).transform(upstreamMetrics.timedFlux("retrieve"))}.
+ * The HTTP status tag is filled in by {@link #statusRecorder()}, which has to be registered on the {@code WebClient}.
+ */
+@Component
+public class UpstreamMetrics {
+
+    public static final String REQUESTS_METRIC = "itemclient.upstream.requests";
+    public static final String IN_FLIGHT_METRIC = "itemclient.upstream.inflight";
+    public static final String ITEMS_METRIC = "itemclient.upstream.items";
+
+    private static final String SIGNAL_LOG_CATEGORY = "itemclient.upstream.";
+
+    private final MeterRegistry meterRegistry;
+    private final UpstreamMetricsProperties properties;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public UpstreamMetrics(UpstreamMetricsProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> timedFlux(String operation) {
+        return flux -> Flux.defer(() -> {
+            Observation observation = start(operation);
+            return sampledLog(flux, operation)
+                    .doOnNext(item -> observation.items++)
+                    .doOnComplete(() -> observation.stop(SignalType.ON_COMPLETE, true))
+                    .doOnError(error -> observation.failed(error, true))
+                    .doOnCancel(() -> observation.stop(SignalType.CANCEL, true))
+                    .subscriberContext(context -> context.put(Observation.class, observation));
+        });
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> timedMono(String operation) {
+        return mono -> Mono.defer(() -> {
+            Observation observation = start(operation);
+            return sampledLog(mono, operation)
+                    .doOnSuccess(item -> observation.stop(SignalType.ON_COMPLETE, false))
+                    .doOnError(error -> observation.failed(error, false))
+                    .doOnCancel(() -> observation.stop(SignalType.CANCEL, false))
+                    .subscriberContext(context -> context.put(Observation.class, observation));
+        });
+    }
+
+    /**
+     * Copies the upstream response status into the observation of the enclosing timed call.
+     */
+    public ExchangeFilterFunction statusRecorder() {
+        return (request, next) -> next.exchange(request)
+                .flatMap(response -> Mono.subscriberContext()
+                        .map(context -> {
+                            context.getOrEmpty(Observation.class)
+                                    .ifPresent(observation -> ((Observation) observation).status = response.rawStatusCode());
+                            return response;
+                        }));
+    }
+
+    private <T> Flux<T> sampledLog(Flux<T> flux, String operation) {
+        return isSampled() ? flux.log(SIGNAL_LOG_CATEGORY + operation, Level.FINE) : flux;
+    }
+
+    private <T> Mono<T> sampledLog(Mono<T> mono, String operation) {
+        return isSampled() ? mono.log(SIGNAL_LOG_CATEGORY + operation, Level.FINE) : mono;
+    }
+
+    private boolean isSampled() {
+        double rate = properties.getSignalLogSampleRate();
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private Observation start(String operation) {
+        AtomicInteger counter = inFlight.computeIfAbsent(operation, op -> meterRegistry.gauge(
+                IN_FLIGHT_METRIC,
+                Tags.of("operation", op),
+                new AtomicInteger()));
+        counter.incrementAndGet();
+        return new Observation(operation, counter, Timer.start(meterRegistry));
+    }
+
+    private class Observation {
+        private final String operation;
+        private final AtomicInteger inFlightCounter;
+        private final Timer.Sample sample;
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private long items;
+        private volatile Throwable error;
+        private volatile int status;
+
+        Observation(String operation, AtomicInteger inFlightCounter, Timer.Sample sample) {
+            this.operation = operation;
+            this.inFlightCounter = inFlightCounter;
+            this.sample = sample;
+        }
+
+        void failed(Throwable error, boolean countItems) {
+            this.error = error;
+            stop(SignalType.ON_ERROR, countItems);
+        }
+
+        //recorded before the terminal signal is propagated, so a caller observing completion also sees the metrics
+        void stop(SignalType signalType, boolean countItems) {
+            if (!stopped.compareAndSet(false, true)) return;
+            inFlightCounter.decrementAndGet();
+            sample.stop(Timer.builder(REQUESTS_METRIC)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome(signalType))
+                    .tag("status", status())
+                    .publishPercentileHistogram(properties.isPercentilesHistogram())
+                    .register(meterRegistry));
+            if (countItems)
+                DistributionSummary.builder(ITEMS_METRIC)
+                        .tag("operation", operation)
+                        .publishPercentileHistogram(properties.isPercentilesHistogram())
+                        .register(meterRegistry)
+                        .record(items);
+        }
+
+        private String outcome(SignalType signalType) {
+            if (signalType == SignalType.CANCEL) return "CANCELLED";
+            int statusCode = statusCode();
+            if (statusCode >= 500) return "SERVER_ERROR";
+            if (statusCode >= 400) return "CLIENT_ERROR";
+            return error == null ? "SUCCESS" : "ERROR";
+        }
+
+        private String status() {
+            int statusCode = statusCode();
+            return statusCode > 0 ? String.valueOf(statusCode) : "NONE";
+        }
+
+        private int statusCode() {
+            if (status > 0) return status;
+            if (error instanceof WebClientResponseException)
+                return ((WebClientResponseException) error).getRawStatusCode();
+            return 0;
+        }
+    }
+}
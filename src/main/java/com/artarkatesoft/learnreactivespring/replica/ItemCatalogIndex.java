@@ -0,0 +1,113 @@
+package com.artarkatesoft.learnreactivespring.replica;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable indexes over one version of the item catalog: a hash by id, items sorted by price and items
+ * sorted by description (case-insensitively, so that a prefix is a contiguous range). The sorted indexes
+ * are plain arrays searched by bisection, and they share the {@link Item} instances of the hash.
+ */
+final class ItemCatalogIndex {
+
+    private static final Comparator<String> DESCRIPTION_ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    static final ItemCatalogIndex EMPTY = new ItemCatalogIndex(Collections.emptyList());
+
+    private final Map<String, Item> byId;
+    private final Item[] byPrice;
+    private final double[] prices;
+    private final Item[] byDescription;
+
+    ItemCatalogIndex(List<Item> items) {
+        this.byId = new HashMap<>(hashCapacity(items.size()));
+        //items without an id cannot be addressed, and a repeated id keeps its last item
+        for (Item item : items) {
+            if (item.getId() != null) byId.put(item.getId(), item);
+        }
+        this.byPrice = byId.values().stream()
+                .filter(Item::hasPrice)
+                .sorted(Comparator.comparingDouble(Item::getPrice))
+                .toArray(Item[]::new);
+        this.prices = new double[byPrice.length];
+        for (int i = 0; i < byPrice.length; i++) prices[i] = byPrice[i].getPrice();
+        this.byDescription = byId.values().stream()
+                .filter(item -> item.getDescription() != null)
+                .sorted(Comparator.comparing(Item::getDescription, DESCRIPTION_ORDER))
+                .toArray(Item[]::new);
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    Item get(String id) {
+        return byId.get(id);
+    }
+
+    List<Item> priceBetween(double min, double max, int limit) {
+        int from = firstPriceAtLeast(min);
+        int to = from;
+        while (to < prices.length && to - from < limit && prices[to] <= max) to++;
+        return Collections.unmodifiableList(Arrays.asList(byPrice).subList(from, to));
+    }
+
+    List<Item> cheapest(int limit) {
+        return Collections.unmodifiableList(Arrays.asList(byPrice).subList(0, Math.max(0, Math.min(limit, byPrice.length))));
+    }
+
+    List<Item> descriptionStartsWith(String prefix, int limit) {
+        int low = 0;
+        int high = byDescription.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (DESCRIPTION_ORDER.compare(byDescription[mid].getDescription(), prefix) < 0) low = mid + 1;
+            else high = mid;
+        }
+        int to = low;
+        while (to < byDescription.length && to - low < limit
+                && byDescription[to].getDescription().regionMatches(true, 0, prefix, 0, prefix.length())) to++;
+        return Collections.unmodifiableList(Arrays.asList(byDescription).subList(low, to));
+    }
+
+    /**
+     * Rough heap size of the indexes and the items they hold, assuming a 64-bit JVM with compressed
+     * references and Latin-1 compact strings.
+     */
+    long estimatedBytes() {
+        long bytes = 0;
+        for (Item item : byId.values()) {
+            bytes += 32 + stringBytes(item.getId()) + stringBytes(item.getDescription());
+        }
+        //hash table, one node per entry, and the three sorted arrays
+        bytes += 16 + 4L * hashCapacity(byId.size()) + 32L * byId.size();
+        bytes += 16 + 4L * byPrice.length + 16 + 8L * prices.length + 16 + 4L * byDescription.length;
+        return bytes;
+    }
+
+    private int firstPriceAtLeast(double min) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < min) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int hashCapacity(int size) {
+        int needed = (int) (size / 0.75f) + 1;
+        return needed <= 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 24 + 16 + value.length();
+    }
+}
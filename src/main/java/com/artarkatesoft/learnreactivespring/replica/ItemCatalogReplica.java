@@ -0,0 +1,175 @@
+package com.artarkatesoft.learnreactivespring.replica;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemListSnapshot;
+import com.artarkatesoft.learnreactivespring.config.ItemReplicaProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.OPERATION_REPLICA_SYNC;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Local copy of the item catalog for queries the item server has no endpoint for.
+ * <p>
+ * Loaded from {@code /v1/items} on start and revalidated with a conditional GET every {@code syncInterval}.
+ * Each changed list is indexed off the event loop into a new {@link ItemCatalogIndex} that replaces the previous
+ * one at once, so queries never block and never see a half-built index.
+ */
+@Slf4j
+@Component
+public class ItemCatalogReplica {
+
+    public static final String ITEMS_METRIC = "itemclient.replica.items";
+    public static final String MEMORY_METRIC = "itemclient.replica.memory";
+    public static final String AGE_METRIC = "itemclient.replica.age";
+    public static final String SYNCS_METRIC = "itemclient.replica.syncs";
+
+    private final ItemReplicaProperties properties;
+    private final WebClient webClient;
+    private final UpstreamMetrics upstreamMetrics;
+    private final UpstreamPolicies upstreamPolicies;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile ItemCatalogIndex index = ItemCatalogIndex.EMPTY;
+    private volatile long estimatedBytes;
+    private volatile ItemListSnapshot snapshot;
+    private Disposable schedule;
+
+    public ItemCatalogReplica(ItemReplicaProperties properties, WebClient webClient, UpstreamMetrics upstreamMetrics,
+                              UpstreamPolicies upstreamPolicies, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.webClient = webClient;
+        this.upstreamMetrics = upstreamMetrics;
+        this.upstreamPolicies = upstreamPolicies;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(ITEMS_METRIC, this, replica -> replica.index.size())
+                .register(meterRegistry);
+        Gauge.builder(MEMORY_METRIC, this, replica -> replica.estimatedBytes)
+                .baseUnit("bytes")
+                .description("Estimated heap size of the replicated items and their indexes")
+                .register(meterRegistry);
+        Gauge.builder(AGE_METRIC, this, replica -> replica.snapshot == null ? Double.NaN : replica.snapshot.age().toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) return;
+        schedule = Flux.interval(Duration.ZERO, properties.getSyncInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> sync())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) schedule.dispose();
+    }
+
+    /**
+     * Revalidates the replica now unless a sync is already running. Never fails: errors are logged and counted.
+     */
+    public Mono<Void> sync() {
+        return Mono.defer(() -> {
+            if (!syncing.compareAndSet(false, true)) return Mono.empty();
+            ItemListSnapshot previous = snapshot;
+            return webClient.get().uri(ITEM_END_POINT_V1)
+                    .accept(APPLICATION_JSON)
+                    .headers(headers -> {
+                        if (previous != null) previous.addValidators(headers);
+                    })
+                    .exchange()
+                    .flatMap(ItemListSnapshot::read)
+                    .transform(upstreamMetrics.timedMono(OPERATION_REPLICA_SYNC))
+                    .transform(upstreamPolicies.mono(OPERATION_REPLICA_SYNC))
+                    //indexing sorts the whole catalog, which would stall the event loop the response arrived on
+                    .publishOn(Schedulers.boundedElastic())
+                    .doOnNext(loaded -> {
+                        install(loaded, new ItemCatalogIndex(loaded.getItems()), false);
+                        synced("modified");
+                    })
+                    .switchIfEmpty(Mono.fromRunnable(() -> {
+                        if (previous != null) snapshot = previous.renewed();
+                        synced("not_modified");
+                    }))
+                    .onErrorResume(error -> {
+                        log.warn("Item replica sync failed: {}", error.toString());
+                        synced("error");
+                        return Mono.empty();
+                    })
+                    //cleared before the caller sees completion, so a sync started right after this one is not skipped
+                    .doOnTerminate(() -> syncing.set(false))
+                    .doOnCancel(() -> syncing.set(false))
+                    .then();
+        });
+    }
+
+    @Nullable
+    public ItemListSnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Indexes {@code restored} and installs it unless a sync loaded the catalog first. Indexing decodes every
+     * item, so call it off the event loop.
+     */
+    public boolean seed(ItemListSnapshot restored) {
+        if (snapshot != null) return false;
+        return install(restored, new ItemCatalogIndex(restored.getItems()), true);
+    }
+
+    public Item get(String id) {
+        return index.get(id);
+    }
+
+    public List<Item> priceBetween(double min, double max, int limit) {
+        return index.priceBetween(min, max, limit);
+    }
+
+    public List<Item> cheapest(int limit) {
+        return index.cheapest(limit);
+    }
+
+    public List<Item> descriptionStartsWith(String prefix, int limit) {
+        return index.descriptionStartsWith(prefix, limit);
+    }
+
+    private synchronized boolean install(ItemListSnapshot loaded, ItemCatalogIndex loadedIndex, boolean onlyIfEmpty) {
+        if (onlyIfEmpty && snapshot != null) return false;
+        estimatedBytes = loadedIndex.estimatedBytes();
+        index = loadedIndex;
+        snapshot = loaded;
+        return true;
+    }
+
+    private void synced(String result) {
+        meterRegistry.counter(SYNCS_METRIC, "result", result).increment();
+    }
+}
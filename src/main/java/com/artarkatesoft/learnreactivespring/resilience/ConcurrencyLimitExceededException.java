@@ -0,0 +1,27 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import java.time.Duration;
+
+/**
+ * An upstream call was shed by the {@link ConcurrencyLimiter}; it was never sent to the item server.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ConcurrencyLimitExceededException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * {@link #getRetryAfter()} rounded up to whole seconds, at least one, for a {@code Retry-After} header.
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
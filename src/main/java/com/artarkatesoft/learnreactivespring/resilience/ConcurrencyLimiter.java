@@ -0,0 +1,217 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.client.ClientResponses;
+import com.artarkatesoft.learnreactivespring.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adaptive limit on concurrent item server calls, in the style of the gradient algorithm of Netflix
+ * concurrency-limits.
+ * <p>
+ * Each call measures the time to the response headers, and holds its permit until its body has been read.
+ * While the limit is actually used, it is moved towards {@code limit * longRtt / rtt + sqrt(limit)}: it grows
+ * while responses are as fast as the long-term average and shrinks once they slow down, i.e. once requests start
+ * queueing at the item server. I/O errors and timeouts cut it by {@code backoffRatio}. Calls over the limit wait
+ * briefly in a bounded queue and are then shed with {@link ConcurrencyLimitExceededException}.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    public static final String LIMIT_METRIC = "itemclient.limiter.limit";
+    public static final String IN_FLIGHT_METRIC = "itemclient.limiter.inflight";
+    public static final String REJECTIONS_METRIC = "itemclient.limiter.rejections";
+    public static final String QUEUE_WAIT_METRIC = "itemclient.limiter.queue.wait";
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    //guarded by waiters
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    public ConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.limit = properties.getInitialLimit();
+        this.queueWait = Timer.builder(QUEUE_WAIT_METRIC)
+                .description("Time calls over the limit waited for a permit")
+                .register(meterRegistry);
+        Gauge.builder(LIMIT_METRIC, this, ConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, this, ConcurrencyLimiter::getInFlight).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int getLimit() {
+        synchronized (waiters) {
+            return (int) limit;
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (waiters) {
+            return inFlight;
+        }
+    }
+
+    /**
+     * Holds every exchange until it gets a permit. The round trip is sampled when the response headers arrive,
+     * but the permit is only returned once the body has been read, so a long item list counts against the limit.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> acquire()
+                .flatMap(permit -> next.exchange(request)
+                        .map(response -> {
+                            permit.sample(false);
+                            return ClientResponses.doOnBodyDone(response, () -> permit.release(false));
+                        })
+                        .doOnError(error -> permit.release(isOverload(error)))
+                        .doOnCancel(permit::cancel));
+    }
+
+    Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Permit permit = null;
+            Waiter waiter = null;
+            synchronized (waiters) {
+                if (inFlight < (int) limit) permit = new Permit(++inFlight);
+                else if (waiters.size() < properties.getMaxQueueSize() && !properties.getMaxQueueWait().isZero())
+                    waiters.addLast(waiter = new Waiter(sink, Timer.start(meterRegistry)));
+            }
+            if (permit != null) {
+                sink.success(permit);
+                return;
+            }
+            if (waiter == null) {
+                sink.error(rejected("queue_full"));
+                return;
+            }
+            Waiter queued = waiter;
+            sink.onCancel(() -> {
+                //granted, but the permit never reached the caller
+                if (!dequeue(queued) && queued.permit != null) queued.permit.cancel();
+            });
+            Schedulers.parallel().schedule(() -> {
+                if (dequeue(queued)) sink.error(rejected("queue_timeout"));
+            }, properties.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private boolean dequeue(Waiter waiter) {
+        synchronized (waiters) {
+            return waiters.remove(waiter);
+        }
+    }
+
+    private ConcurrencyLimitExceededException rejected(String reason) {
+        meterRegistry.counter(REJECTIONS_METRIC, "reason", reason).increment();
+        return new ConcurrencyLimitExceededException("Item server concurrency limit reached", properties.getRetryAfter());
+    }
+
+    void onSample(long rttNanos, int inFlightAtStart, boolean overload) {
+        synchronized (waiters) {
+            if (overload) {
+                limit = clamp(limit * properties.getBackoffRatio());
+                return;
+            }
+            int window = Math.max(1, properties.getLongWindow());
+            longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos + (rttNanos - longRttNanos) / window;
+            //an unused limit says nothing about what the item server can take
+            if (inFlightAtStart < limit / 2) return;
+            double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / rttNanos));
+            double estimate = limit * gradient + Math.sqrt(limit);
+            limit = clamp(limit * (1 - properties.getSmoothing()) + estimate * properties.getSmoothing());
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+
+    private void releaseAndGrant() {
+        List<Waiter> granted = Collections.emptyList();
+        synchronized (waiters) {
+            inFlight--;
+            //the limit may have grown, so more than one waiter can go
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                Waiter waiter = waiters.pollFirst();
+                waiter.permit = new Permit(++inFlight);
+                if (granted.isEmpty()) granted = new ArrayList<>();
+                granted.add(waiter);
+            }
+        }
+        for (Waiter waiter : granted) {
+            waiter.queued.stop(queueWait);
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private static boolean isOverload(Throwable error) {
+        return error instanceof IOException
+                || error instanceof TimeoutException
+                || error instanceof io.netty.handler.timeout.TimeoutException
+                || error.getCause() instanceof IOException;
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final Timer.Sample queued;
+        private volatile Permit permit;
+
+        private Waiter(MonoSink<Permit> sink, Timer.Sample queued) {
+            this.sink = sink;
+            this.queued = queued;
+        }
+    }
+
+    /**
+     * One admitted call; released exactly once.
+     */
+    final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean sampled = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        void sample(boolean overload) {
+            if (sampled.compareAndSet(false, true)) onSample(System.nanoTime() - startNanos, inFlightAtStart, overload);
+        }
+
+        //samples the call unless that was done at the headers already
+        void release(boolean overload) {
+            if (!released.compareAndSet(false, true)) return;
+            sample(overload);
+            releaseAndGrant();
+        }
+
+        void cancel() {
+            if (released.compareAndSet(false, true)) releaseAndGrant();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for idempotent reads: if the first attempt has not answered after the hedge delay,
+ * a second attempt is sent and whichever emits first wins, the other one is cancelled.
+ * <p>
+ * The delay is either fixed or the configured latency percentile of the previous window.
+ * Hedges are paid from a token budget so they cannot multiply the upstream load during a slowdown.
+ */
+@Component
+public class Hedging {
+
+    public static final String FIRED_METRIC = "itemclient.hedge.fired";
+    public static final String WON_METRIC = "itemclient.hedge.won";
+    public static final String SKIPPED_METRIC = "itemclient.hedge.skipped";
+
+    private static final long TOKEN_SCALE = 1000;
+
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong budgetMilliTokens;
+
+    public Hedging(HedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.budgetMilliTokens = new AtomicLong(properties.getBudgetMaxTokens() * TOKEN_SCALE);
+    }
+
+    public <T> Mono<T> hedge(String operation, Supplier<Mono<T>> attempt) {
+        if (!properties.isEnabled()) return attempt.get();
+        return Mono.defer(() -> {
+            LatencyWindow latencyWindow = latencies.computeIfAbsent(operation, op -> new LatencyWindow());
+            earnToken();
+            AtomicBoolean settled = new AtomicBoolean();
+            Mono<T> primary = timed(attempt, latencyWindow)
+                    .doOnSuccess(value -> settled.set(true));
+            Mono<T> hedge = Mono.delay(latencyWindow.hedgeDelay())
+                    .flatMap(tick -> {
+                        if (settled.get()) return Mono.<T>never();
+                        if (!spendToken()) {
+                            counter(SKIPPED_METRIC, operation).increment();
+                            return Mono.<T>never();
+                        }
+                        counter(FIRED_METRIC, operation).increment();
+                        return timed(attempt, latencyWindow)
+                                .doOnSuccess(value -> {
+                                    if (settled.compareAndSet(false, true))
+                                        counter(WON_METRIC, operation).increment();
+                                });
+                    });
+            return Mono.first(primary, hedge);
+        });
+    }
+
+    private <T> Mono<T> timed(Supplier<Mono<T>> attempt, LatencyWindow latencyWindow) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.get()
+                    .doOnSuccess(value -> latencyWindow.record(System.nanoTime() - start));
+        });
+    }
+
+    private void earnToken() {
+        long max = properties.getBudgetMaxTokens() * TOKEN_SCALE;
+        long earned = (long) (properties.getBudgetRatio() * TOKEN_SCALE);
+        budgetMilliTokens.getAndUpdate(tokens -> Math.min(max, tokens + earned));
+    }
+
+    private boolean spendToken() {
+        while (true) {
+            long tokens = budgetMilliTokens.get();
+            if (tokens < TOKEN_SCALE) return false;
+            if (budgetMilliTokens.compareAndSet(tokens, tokens - TOKEN_SCALE)) return true;
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return meterRegistry.counter(name, "operation", operation);
+    }
+
+    /**
+     * Successful attempt latencies of the current window; the hedge delay is read from the previous one.
+     */
+    private class LatencyWindow {
+        private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 2);
+        private final AtomicLong nextRotationNanos = new AtomicLong(System.nanoTime() + properties.getWindow().toNanos());
+        private volatile Histogram previous;
+
+        void record(long elapsedNanos) {
+            recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), TimeUnit.MINUTES.toMicros(1)));
+        }
+
+        Duration hedgeDelay() {
+            if (!properties.isAdaptive()) return properties.getDelay();
+            long now = System.nanoTime();
+            long next = nextRotationNanos.get();
+            if (now - next >= 0 && nextRotationNanos.compareAndSet(next, now + properties.getWindow().toNanos()))
+                previous = recorder.getIntervalHistogram();
+            Histogram histogram = previous;
+            if (histogram == null || histogram.getTotalCount() < properties.getMinSamples())
+                return properties.getDelay();
+            Duration observed = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(histogram.getValueAtPercentile(properties.getPercentile())));
+            return observed.compareTo(properties.getMinDelay()) < 0 ? properties.getMinDelay() : observed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.client.ClientResponses;
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties.Traffic;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Concurrency caps per {@link Traffic} class of item server calls.
+ * <p>
+ * The filter classifies each call, fails it with {@code BulkheadFullException} when its class is at
+ * {@code maxConcurrentCalls}, and puts the class into the subscriber context, where {@code BulkheadConnector}
+ * picks the connection pool of that class. A call holds its slot until its response body has been read.
+ */
+@Component
+public class ItemServerBulkheads {
+
+    /**
+     * Request attribute overriding the {@link Traffic} class derived from the HTTP method.
+     */
+    public static final String TRAFFIC_ATTRIBUTE = ItemServerBulkheads.class.getName() + ".traffic";
+
+    private final ItemServerProperties.Bulkheads properties;
+    private final Map<Traffic, Bulkhead> bulkheads = new EnumMap<>(Traffic.class);
+
+    public ItemServerBulkheads(ItemServerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getBulkheads();
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        for (Traffic traffic : Traffic.values()) {
+            BulkheadConfig config = BulkheadConfig.custom()
+                    .maxConcurrentCalls(this.properties.forTraffic(traffic).getMaxConcurrentCalls())
+                    .maxWaitDuration(Duration.ZERO)
+                    .build();
+            bulkheads.put(traffic, registry.bulkhead(traffic.name().toLowerCase(Locale.ROOT), config));
+        }
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> {
+            Traffic traffic = trafficOf(request);
+            Bulkhead bulkhead = bulkheads.get(traffic);
+            return Mono.defer(() -> {
+                if (!bulkhead.tryAcquirePermission())
+                    return Mono.<ClientResponse>error(BulkheadFullException.createBulkheadFullException(bulkhead));
+                //BulkheadOperator would free the slot at the headers, while a list body is still streaming
+                AtomicBoolean released = new AtomicBoolean();
+                Runnable release = () -> {
+                    if (released.compareAndSet(false, true)) bulkhead.onComplete();
+                };
+                return next.exchange(request)
+                        .map(response -> ClientResponses.doOnBodyDone(response, release))
+                        .doOnError(error -> release.run())
+                        .doOnCancel(release);
+            }).subscriberContext(context -> context.put(Traffic.class, traffic));
+        };
+    }
+
+    /**
+     * The class put into the context by {@link #filter()}, or the one implied by {@code method}.
+     */
+    public static Traffic trafficOf(Context context, HttpMethod method) {
+        return context.getOrDefault(Traffic.class, trafficOf(method));
+    }
+
+    private static Traffic trafficOf(ClientRequest request) {
+        return request.attribute(TRAFFIC_ATTRIBUTE)
+                .map(Traffic.class::cast)
+                .orElseGet(() -> trafficOf(request.method()));
+    }
+
+    private static Traffic trafficOf(HttpMethod method) {
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS
+                ? Traffic.READ : Traffic.WRITE;
+    }
+}
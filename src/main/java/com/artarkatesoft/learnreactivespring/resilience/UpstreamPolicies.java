@@ -0,0 +1,138 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+
+/**
+ * Per-operation timeout, jittered exponential retry and circuit breaker around upstream calls.
+ * <p>
+ * Retries are only made for idempotent operations, only for I/O errors, timeouts and 5xx responses,
+ * and for list calls only until the first item has been emitted. An open circuit or a full bulkhead fails
+ * fast with 503, a timeout surfaces as 504.
+ */
+@Component
+public class UpstreamPolicies {
+
+    public static final String RETRIES_METRIC = "itemclient.upstream.retries";
+    public static final String TIMEOUTS_METRIC = "itemclient.upstream.timeouts";
+
+    private static final Set<String> IDEMPOTENT_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            OPERATION_RETRIEVE, OPERATION_EXCHANGE, OPERATION_GET_BY_ID, OPERATION_UPDATE, OPERATION_DELETE,
+            OPERATION_PASSTHROUGH_RETRIEVE, OPERATION_PASSTHROUGH_GET_BY_ID, OPERATION_REPLICA_SYNC,
+            OPERATION_BULK_UPDATE)));
+
+    private final UpstreamPolicyProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+
+    public UpstreamPolicies(UpstreamPolicyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String operation) {
+        UpstreamPolicyProperties.Policy policy = properties.forOperation(operation);
+        return mono -> {
+            Mono<T> attempt = mono
+                    .timeout(policy.getTimeout())
+                    .doOnError(TimeoutException.class, e -> meterRegistry.counter(TIMEOUTS_METRIC, "operation", operation).increment());
+            if (policy.getCircuitBreakerEnabled())
+                attempt = attempt.transform(CircuitBreakerOperator.of(circuitBreaker(operation, policy)));
+            if (isRetryable(operation, policy))
+                attempt = attempt.retryWhen(retry(operation, policy, () -> true));
+            return attempt.onErrorMap(this::toResponseStatus);
+        };
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String operation) {
+        UpstreamPolicyProperties.Policy policy = properties.forOperation(operation);
+        return flux -> Flux.defer(() -> {
+            //once an item went downstream a retry would emit it twice
+            AtomicBoolean emitted = new AtomicBoolean();
+            //only the first item is timed: later gaps may just be a slow subscriber holding back demand, and a
+            //stalled body is ended by the connection read timeout
+            Flux<T> attempt = flux
+                    .timeout(Mono.delay(policy.getTimeout()), item -> Mono.never())
+                    .doOnError(TimeoutException.class, e -> meterRegistry.counter(TIMEOUTS_METRIC, "operation", operation).increment());
+            if (policy.getCircuitBreakerEnabled())
+                attempt = attempt.transform(CircuitBreakerOperator.of(circuitBreaker(operation, policy)));
+            attempt = attempt.doOnNext(item -> emitted.set(true));
+            if (isRetryable(operation, policy))
+                attempt = attempt.retryWhen(retry(operation, policy, () -> !emitted.get()));
+            return attempt.onErrorMap(this::toResponseStatus);
+        });
+    }
+
+    private boolean isRetryable(String operation, UpstreamPolicyProperties.Policy policy) {
+        return policy.getMaxRetries() > 0 && IDEMPOTENT_OPERATIONS.contains(operation);
+    }
+
+    private Retry retry(String operation, UpstreamPolicyProperties.Policy policy, BooleanSupplier allowed) {
+        return Retry.backoff(policy.getMaxRetries(), policy.getRetryBackoff())
+                .maxBackoff(policy.getRetryMaxBackoff())
+                .jitter(policy.getRetryJitter())
+                .filter(error -> allowed.getAsBoolean() && isTransient(error))
+                .doBeforeRetry(signal -> meterRegistry.counter(RETRIES_METRIC, "operation", operation).increment())
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private CircuitBreaker circuitBreaker(String operation, UpstreamPolicyProperties.Policy policy) {
+        return circuitBreakerRegistry.circuitBreaker(operation, () -> CircuitBreakerConfig.custom()
+                .failureRateThreshold(policy.getFailureRateThreshold())
+                .slowCallRateThreshold(policy.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(policy.getSlowCallDurationThreshold())
+                .slidingWindowSize(policy.getSlidingWindowSize())
+                .minimumNumberOfCalls(policy.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(policy.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(policy.getPermittedCallsInHalfOpenState())
+                //4xx answers mean the upstream is healthy
+                .recordException(UpstreamPolicies::isTransient)
+                .build());
+    }
+
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException)
+            return ((WebClientResponseException) error).getRawStatusCode() >= 500;
+        return error instanceof IOException
+                || error instanceof TimeoutException
+                || error instanceof io.netty.handler.timeout.TimeoutException
+                || error.getCause() instanceof IOException;
+    }
+
+    private Throwable toResponseStatus(Throwable error) {
+        if (error instanceof CallNotPermittedException)
+            return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Item server circuit is open", error);
+        if (error instanceof BulkheadFullException)
+            return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Item server bulkhead is full", error);
+        if (error instanceof TimeoutException)
+            return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Item server did not answer in time", error);
+        return error;
+    }
+}
@@ -0,0 +1,240 @@
+package com.artarkatesoft.learnreactivespring.warmstart;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemListSnapshot;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Item list snapshot in a compact binary file, read through a memory mapping.
+ * <p>
+ * The file is a fixed header, the validators, the item records, then two tables: the offset of every record in
+ * list order, and the list positions of the items that have an id, sorted by id. A record is the id, description
+ * and price; a string is its length ({@code -1} for null) and UTF-8 bytes. Mapping the file decodes nothing: the
+ * item list decodes a record on each access and {@link #find} binary searches the id table.
+ */
+final class ItemSnapshotFile {
+
+    private static final int MAGIC = 0x49534e50;
+    private static final int VERSION = 1;
+    //magic, version, length, count, id count, offsets position, by-id position, fetched-at millis
+    private static final int HEADER_SIZE = 36;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int idCount;
+    private final int offsetsPosition;
+    private final int byIdPosition;
+    private final long fetchedAtMillis;
+    @Nullable
+    private final String etag;
+    @Nullable
+    private final String lastModified;
+
+    private ItemSnapshotFile(Path file, ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != buffer.capacity())
+            throw new IOException("Not a complete item snapshot: " + file);
+        this.count = buffer.getInt(12);
+        this.idCount = buffer.getInt(16);
+        this.offsetsPosition = buffer.getInt(20);
+        this.byIdPosition = buffer.getInt(24);
+        this.fetchedAtMillis = buffer.getLong(28);
+        if (count < 0 || idCount < 0 || idCount > count || offsetsPosition < HEADER_SIZE
+                || (long) offsetsPosition + 4L * count != byIdPosition || (long) byIdPosition + 4L * idCount != buffer.capacity())
+            throw new IOException("Corrupt item snapshot: " + file);
+        int etagLength = buffer.getInt(HEADER_SIZE);
+        this.etag = string(HEADER_SIZE + 4, etagLength);
+        int lastModifiedPosition = HEADER_SIZE + 4 + Math.max(etagLength, 0);
+        this.lastModified = string(lastModifiedPosition + 4, buffer.getInt(lastModifiedPosition));
+    }
+
+    /**
+     * Maps {@code file} read-only and checks its header; the items are decoded only when accessed.
+     */
+    static ItemSnapshotFile map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) throw new IOException("Not an item snapshot: " + file);
+            //the mapping stays valid once the channel is closed
+            return new ItemSnapshotFile(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Writes {@code snapshot} to a sibling temporary file, then moves it over {@code file}, so a mapped earlier
+     * snapshot stays intact and a crash never leaves a partial file behind.
+     */
+    static void write(Path file, ItemListSnapshot snapshot, long fetchedAtMillis) throws IOException {
+        List<Item> items = snapshot.getItems();
+        int[] offsets = new int[items.size()];
+        String[] ids = new String[items.size()];
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int offsetsPosition;
+        int byIdPosition;
+        int length;
+        int[] byId;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.write(new byte[HEADER_SIZE]);
+            writeString(out, snapshot.getEtag());
+            writeString(out, snapshot.getLastModified());
+            for (int i = 0; i < offsets.length; i++) {
+                Item item = items.get(i);
+                offsets[i] = out.size();
+                ids[i] = item.getId();
+                writeString(out, item.getId());
+                writeString(out, item.getDescription());
+                out.writeDouble(item.getPrice());
+            }
+            offsetsPosition = out.size();
+            for (int offset : offsets) out.writeInt(offset);
+            byId = IntStream.range(0, ids.length)
+                    .filter(i -> ids[i] != null)
+                    .boxed()
+                    .sorted(Comparator.comparing(i -> ids[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            byIdPosition = out.size();
+            for (int position : byId) out.writeInt(position);
+            length = out.size();
+            //size() stops counting at Integer.MAX_VALUE
+            if (length == Integer.MAX_VALUE) throw new IOException("Item snapshot larger than 2 GB: " + file);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(length)
+                .putInt(offsets.length)
+                .putInt(byId.length)
+                .putInt(offsetsPosition)
+                .putInt(byIdPosition)
+                .putLong(fetchedAtMillis);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(temporary, WRITE)) {
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * The snapshot as fetched from the item server, with its original age and validators.
+     *
+     * @param onAccess called on every item decoded from the list
+     */
+    ItemListSnapshot toSnapshot(Runnable onAccess) {
+        return ItemListSnapshot.restored(new Items(onAccess), etag, lastModified, age());
+    }
+
+    /**
+     * Whether {@code items} is a list of this file, i.e. the snapshot was restored and not replaced since.
+     */
+    boolean isSourceOf(List<Item> items) {
+        return items instanceof Items && ((Items) items).file() == this;
+    }
+
+    @Nullable
+    Item find(String id) {
+        int low = 0;
+        int high = idCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = buffer.getInt(offsetsPosition + 4 * buffer.getInt(byIdPosition + 4 * middle));
+            int comparison = string(record + 4, buffer.getInt(record)).compareTo(id);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return decode(record);
+        }
+        return null;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    long fetchedAtMillis() {
+        return fetchedAtMillis;
+    }
+
+    Duration age() {
+        return Duration.ofMillis(Math.max(0, System.currentTimeMillis() - fetchedAtMillis));
+    }
+
+    private Item decode(int position) {
+        int idLength = buffer.getInt(position);
+        String id = string(position + 4, idLength);
+        position += 4 + Math.max(idLength, 0);
+        int descriptionLength = buffer.getInt(position);
+        String description = string(position + 4, descriptionLength);
+        position += 4 + Math.max(descriptionLength, 0);
+        return new Item(id, description, buffer.getDouble(position));
+    }
+
+    @Nullable
+    private String string(int position, int length) {
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        //a duplicate has its own position, so concurrent reads do not interfere
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private final class Items extends AbstractList<Item> implements RandomAccess {
+        private final Runnable onAccess;
+
+        private Items(Runnable onAccess) {
+            this.onAccess = onAccess;
+        }
+
+        @Override
+        public Item get(int index) {
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+            onAccess.run();
+            return decode(buffer.getInt(offsetsPosition + 4 * index));
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        private ItemSnapshotFile file() {
+            return ItemSnapshotFile.this;
+        }
+    }
+}
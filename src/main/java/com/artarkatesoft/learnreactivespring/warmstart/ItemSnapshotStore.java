@@ -0,0 +1,195 @@
+package com.artarkatesoft.learnreactivespring.warmstart;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListSnapshot;
+import com.artarkatesoft.learnreactivespring.config.WarmStartProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.replica.ItemCatalogReplica;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the item list on local disk so a restarted client does not start cold.
+ * <p>
+ * Every {@code writeInterval}, and on shutdown, the replica's item list (or else the list snapshot) is written
+ * to an {@link ItemSnapshotFile} when it changed or was revalidated since the last write. On start the file is
+ * memory-mapped and, unless older than {@code maxAge}, seeds the list snapshot and the replica and answers
+ * single-item cache misses, decoding items only as they are read. The list snapshot and the replica revalidate
+ * it with its original validators as usual; once either loads a changed list, single items come from the item
+ * server again.
+ */
+@Slf4j
+@Component
+public class ItemSnapshotStore {
+
+    public static final String LOAD_METRIC = "itemclient.warmstart.load";
+    public static final String SNAPSHOT_SIZE_METRIC = "itemclient.warmstart.snapshot.size";
+    public static final String SNAPSHOT_ITEMS_METRIC = "itemclient.warmstart.snapshot.items";
+    public static final String FIRST_HIT_METRIC = "itemclient.warmstart.first.hit";
+    public static final String WRITES_METRIC = "itemclient.warmstart.writes";
+
+    private final WarmStartProperties properties;
+    private final ItemListCache itemListCache;
+    private final ItemCatalogReplica replica;
+    private final ItemCache itemCache;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean hit = new AtomicBoolean();
+    //the restored file while single items are still served from it
+    private volatile ItemSnapshotFile restored;
+    private volatile long trustedAtMillis;
+    private volatile double loadSeconds = Double.NaN;
+    private volatile double firstHitSeconds = Double.NaN;
+    private volatile long snapshotBytes;
+    private volatile int snapshotItems;
+    private volatile List<Item> writtenItems;
+    private volatile long writtenFetchedAtMillis;
+    private Disposable schedule;
+
+    public ItemSnapshotStore(WarmStartProperties properties, ItemListCache itemListCache, ItemCatalogReplica replica,
+                             ItemCache itemCache, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.itemListCache = itemListCache;
+        this.replica = replica;
+        this.itemCache = itemCache;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(LOAD_METRIC, this, store -> store.loadSeconds)
+                .baseUnit("seconds")
+                .description("Time to map and check the snapshot restored on start")
+                .register(meterRegistry);
+        Gauge.builder(SNAPSHOT_SIZE_METRIC, this, store -> store.snapshotBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(SNAPSHOT_ITEMS_METRIC, this, store -> store.snapshotItems)
+                .register(meterRegistry);
+        Gauge.builder(FIRST_HIT_METRIC, this, store -> store.firstHitSeconds)
+                .baseUnit("seconds")
+                .description("JVM uptime when the first item was served from the restored snapshot")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) return;
+        Path file = Paths.get(properties.getFile());
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        if (Files.exists(file)) restore(file);
+        schedule = Flux.interval(properties.getWriteInterval(), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .subscribe(tick -> write());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule == null) return;
+        schedule.dispose();
+        write();
+    }
+
+    void restore(Path file) {
+        long started = System.nanoTime();
+        ItemSnapshotFile snapshotFile;
+        try {
+            snapshotFile = ItemSnapshotFile.map(file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable item snapshot {}: {}", file, e.toString());
+            return;
+        }
+        loadSeconds = (System.nanoTime() - started) / 1e9;
+        snapshotBytes = snapshotFile.sizeInBytes();
+        snapshotItems = snapshotFile.size();
+        if (snapshotFile.age().compareTo(properties.getMaxAge()) > 0) {
+            log.info("Item snapshot {} is {} old, starting cold", file, snapshotFile.age());
+            return;
+        }
+        log.info("Restored {} items ({} bytes, {} old) from {} in {} ms", snapshotFile.size(), snapshotFile.sizeInBytes(),
+                snapshotFile.age(), file, Math.round(loadSeconds * 1000));
+        trustedAtMillis = snapshotFile.fetchedAtMillis();
+        writtenFetchedAtMillis = snapshotFile.fetchedAtMillis();
+        restored = snapshotFile;
+        itemCache.setFallback(this::find);
+        if (itemListCache.isEnabled()) itemListCache.seed(snapshotFile.toSnapshot(this::hit));
+        //indexing decodes every item, so the replica is seeded in the background
+        if (replica.isEnabled()) Schedulers.boundedElastic().schedule(() -> replica.seed(snapshotFile.toSnapshot(() -> {
+        })));
+    }
+
+    /**
+     * Writes the current item list unless it is the one written last and was not revalidated since.
+     * Never fails: errors are logged and counted.
+     */
+    void write() {
+        ItemListSnapshot current = replica.isLoaded() ? replica.current() : itemListCache.current();
+        if (current == null) return;
+        long fetchedAtMillis = System.currentTimeMillis() - current.age().toMillis();
+        ItemSnapshotFile restoredFile = restored;
+        boolean fromFile = restoredFile != null && restoredFile.isSourceOf(current.getItems());
+        if (fromFile) trustedAtMillis = Math.max(trustedAtMillis, fetchedAtMillis);
+        else if (restoredFile != null) replaced(restoredFile);
+        //ages are measured in nanos and converted, so the same fetch may be a few millis off
+        boolean sameFetch = Math.abs(fetchedAtMillis - writtenFetchedAtMillis) < 1000;
+        if ((fromFile || current.getItems() == writtenItems) && sameFetch) return;
+        try {
+            ItemSnapshotFile.write(Paths.get(properties.getFile()), current, fetchedAtMillis);
+            writtenItems = current.getItems();
+            writtenFetchedAtMillis = fetchedAtMillis;
+            meterRegistry.counter(WRITES_METRIC, "result", "written").increment();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Writing the item snapshot failed: {}", e.toString());
+            meterRegistry.counter(WRITES_METRIC, "result", "error").increment();
+        }
+    }
+
+    @Nullable
+    private Item find(String id) {
+        ItemSnapshotFile current = restored;
+        if (current == null) return null;
+        if (System.currentTimeMillis() - trustedAtMillis > properties.getMaxAge().toMillis()) {
+            restored = null;
+            return null;
+        }
+        //a list loaded from the item server is newer than the file, whether or not it was written out yet
+        if (isReplaced(current, replica.isEnabled() ? replica.current() : null)
+                || isReplaced(current, itemListCache.isEnabled() ? itemListCache.current() : null)) {
+            replaced(current);
+            return null;
+        }
+        Item item = current.find(id);
+        if (item != null) hit();
+        return item;
+    }
+
+    private static boolean isReplaced(ItemSnapshotFile file, @Nullable ItemListSnapshot current) {
+        return current != null && !file.isSourceOf(current.getItems());
+    }
+
+    private void replaced(ItemSnapshotFile file) {
+        if (restored != file) return;
+        restored = null;
+        log.info("Item list changed since the restored snapshot, no longer serving single items from it");
+    }
+
+    private void hit() {
+        if (hit.compareAndSet(false, true)) firstHitSeconds = ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0;
+    }
+}
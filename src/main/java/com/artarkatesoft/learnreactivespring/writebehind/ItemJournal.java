@@ -0,0 +1,284 @@
+package com.artarkatesoft.learnreactivespring.writebehind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Append-only journal in a memory-mapped file.
+ * <p>
+ * The header holds a generation and a checkpoint: every record before the checkpoint is settled. A record is
+ * {@code [length][crc][generation][payload]}; the CRC covers the generation and the payload, so a torn write or a
+ * record left over from an earlier generation ends the scan on recovery. Once every record is settled the journal
+ * starts over at the front with the next generation. When a record does not fit while settled ones still take up
+ * space, the unsettled records are copied to a new file under the next generation, which then replaces the journal.
+ * <p>
+ * Records are known by an id that stays the same when they are moved. {@link #append} does not force the record
+ * to disk; {@link #sync} does, for every record appended so far, so concurrent appenders share one force.
+ */
+class ItemJournal implements Closeable {
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    private final Path file;
+    private final boolean fsync;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    //id of each record appended or recovered and not settled yet; only ids from the first unsettled one are kept
+    private final NavigableMap<Long, Slot> unsettled = new TreeMap<>();
+    private long generation;
+    private int checkpoint;
+    private int writePosition;
+    //ids are the file offset of the record until the journal first starts over or is compacted
+    private long nextId;
+    //every record with a smaller id is on disk
+    private volatile long syncedId;
+
+    private ItemJournal(Path file, FileChannel channel, MappedByteBuffer buffer, boolean fsync) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.fsync = fsync;
+        this.generation = buffer.getLong(0);
+        this.checkpoint = (int) buffer.getLong(8);
+        if (generation == 0 || checkpoint < HEADER_SIZE || checkpoint > buffer.capacity()) {
+            generation = 1;
+            checkpoint = HEADER_SIZE;
+            writeHeader();
+        }
+        this.writePosition = checkpoint;
+        this.nextId = checkpoint;
+    }
+
+    static ItemJournal open(Path file, long size, boolean fsync) throws IOException {
+        FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        long mappedSize = Math.max(size, channel.size());
+        if (mappedSize > Integer.MAX_VALUE) throw new IllegalArgumentException("Journal larger than 2 GB: " + file);
+        return new ItemJournal(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize), fsync);
+    }
+
+    /**
+     * Records after the checkpoint, i.e. appended but not settled before the last shutdown or crash.
+     * Must be called once, before the first {@link #append}.
+     */
+    synchronized List<Record> recover() {
+        List<Record> records = new ArrayList<>();
+        Record record;
+        while ((record = read(writePosition, nextId)) != null) {
+            records.add(record);
+            unsettled.put(nextId, new Slot(writePosition, record.getPayload().length));
+            advance(record.getPayload().length);
+        }
+        syncedId = nextId;
+        return records;
+    }
+
+    /**
+     * @return the id of the new record, or {@code -1} when it does not fit in the journal even after compacting it
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        if (unsettled.isEmpty() && writePosition != HEADER_SIZE) startOver();
+        if (!fits(payload.length) && hasSettledSpace()) compact();
+        if (!fits(payload.length)) return -1;
+        long id = nextId;
+        write(buffer, writePosition, generation, payload);
+        unsettled.put(id, new Slot(writePosition, payload.length));
+        advance(payload.length);
+        return id;
+    }
+
+    /**
+     * Forces every record appended so far to disk unless the record {@code id} is there already, or fsync is off.
+     * A caller that finds another one forcing waits for it, and is then usually covered by it.
+     */
+    void sync(long id) {
+        if (!fsync || id < syncedId) return;
+        synchronized (syncLock) {
+            if (id < syncedId) return;
+            MappedByteBuffer target;
+            long appended;
+            synchronized (this) {
+                target = buffer;
+                appended = nextId;
+            }
+            //a compaction meanwhile has forced every live record into the new file already
+            target.force();
+            syncedId = Math.max(syncedId, appended);
+        }
+    }
+
+    /**
+     * Marks the record {@code id} as done and moves the checkpoint past every settled record in front.
+     * The checkpoint is not forced to disk: after a crash a few settled records may be replayed again.
+     */
+    synchronized void settle(long id) {
+        Slot slot = unsettled.get(id);
+        if (slot == null) return;
+        slot.settled = true;
+        while (!unsettled.isEmpty() && unsettled.firstEntry().getValue().settled) unsettled.pollFirstEntry();
+        checkpoint = unsettled.isEmpty() ? writePosition : unsettled.firstEntry().getValue().offset;
+        buffer.putLong(8, checkpoint);
+    }
+
+    synchronized int usedBytes() {
+        return writePosition - checkpoint;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private boolean fits(int length) {
+        return (long) writePosition + RECORD_HEADER_SIZE + length <= buffer.capacity();
+    }
+
+    private boolean hasSettledSpace() {
+        if (checkpoint > HEADER_SIZE) return true;
+        for (Slot slot : unsettled.values()) if (slot.settled) return true;
+        return false;
+    }
+
+    private void advance(int length) {
+        writePosition += RECORD_HEADER_SIZE + length;
+        nextId += RECORD_HEADER_SIZE + length;
+    }
+
+    private void startOver() {
+        generation++;
+        checkpoint = HEADER_SIZE;
+        writePosition = HEADER_SIZE;
+        writeHeader();
+    }
+
+    /**
+     * Copies the unsettled records to the front of a new file and moves it over the journal. A crash before the
+     * move leaves the journal as it was; the copy is forced before it, so after it the records are all there.
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        long nextGeneration = generation + 1;
+        FileChannel newChannel = FileChannel.open(compacted, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        MappedByteBuffer newBuffer;
+        int position = HEADER_SIZE;
+        try {
+            newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, buffer.capacity());
+            for (Iterator<Slot> slots = unsettled.values().iterator(); slots.hasNext(); ) {
+                Slot slot = slots.next();
+                if (slot.settled) {
+                    slots.remove();
+                    continue;
+                }
+                write(newBuffer, position, nextGeneration, payload(slot.offset, slot.length));
+                slot.offset = position;
+                position += RECORD_HEADER_SIZE + slot.length;
+            }
+            newBuffer.putLong(0, nextGeneration);
+            newBuffer.putLong(8, HEADER_SIZE);
+            newBuffer.force();
+            Files.move(compacted, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            newChannel.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+        channel.close();
+        channel = newChannel;
+        buffer = newBuffer;
+        generation = nextGeneration;
+        checkpoint = HEADER_SIZE;
+        writePosition = position;
+        syncedId = Math.max(syncedId, nextId);
+    }
+
+    private void writeHeader() {
+        buffer.putLong(0, generation);
+        buffer.putLong(8, checkpoint);
+        buffer.force();
+    }
+
+    private static void write(MappedByteBuffer target, int offset, long generation, byte[] payload) {
+        target.putInt(offset + 4, crc(generation, payload));
+        target.putLong(offset + 8, generation);
+        ByteBuffer body = target.duplicate();
+        body.position(offset + RECORD_HEADER_SIZE);
+        body.put(payload);
+        //the length goes last: a record without one ends the scan
+        target.putInt(offset, payload.length);
+    }
+
+    private Record read(int position, long id) {
+        if ((long) position + RECORD_HEADER_SIZE > buffer.capacity()) return null;
+        int length = buffer.getInt(position);
+        if (length <= 0 || (long) position + RECORD_HEADER_SIZE + length > buffer.capacity()) return null;
+        if (buffer.getLong(position + 8) != generation) return null;
+        byte[] payload = payload(position, length);
+        if (buffer.getInt(position + 4) != crc(generation, payload)) return null;
+        return new Record(id, payload);
+    }
+
+    private byte[] payload(int position, int length) {
+        byte[] payload = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + RECORD_HEADER_SIZE);
+        source.get(payload);
+        return payload;
+    }
+
+    private static int crc(long generation, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, generation).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static final class Slot {
+        private int offset;
+        private final int length;
+        private boolean settled;
+
+        private Slot(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    static final class Record {
+        private final long id;
+        private final byte[] payload;
+
+        Record(long id, byte[] payload) {
+            this.id = id;
+            this.payload = payload;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        byte[] getPayload() {
+            return payload;
+        }
+    }
+}
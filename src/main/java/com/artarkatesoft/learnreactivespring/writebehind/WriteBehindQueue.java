@@ -0,0 +1,246 @@
+package com.artarkatesoft.learnreactivespring.writebehind;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.config.WriteBehindProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.WriteBehindStatus;
+import com.artarkatesoft.learnreactivespring.domain.WriteBehindStatus.State;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.artarkatesoft.learnreactivespring.client.ItemServerClient.messageOf;
+import static com.artarkatesoft.learnreactivespring.client.ItemServerClient.statusOf;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.OPERATION_WRITE_BEHIND_CREATE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Accepts items for creation into an {@link ItemJournal} and creates them on the item server in the background.
+ * <p>
+ * Every {@code drainInterval} up to {@code batchSize} pending items are sent, {@code concurrency} at a time.
+ * Transient failures are retried with exponential backoff, and items still in the journal after a restart
+ * are sent again. Delivery is at least once: an item whose creation was not recorded before a crash is
+ * created again.
+ */
+@Slf4j
+@Component
+public class WriteBehindQueue {
+
+    public static final String JOURNAL_FILE = "items.journal";
+    public static final String PENDING_METRIC = "itemclient.writebehind.pending";
+    public static final String JOURNAL_USED_METRIC = "itemclient.writebehind.journal.used";
+    public static final String WRITES_METRIC = "itemclient.writebehind.writes";
+
+    private final WriteBehindProperties properties;
+    private final WebClient webClient;
+    private final ItemListCache itemListCache;
+    private final UpstreamMetrics upstreamMetrics;
+    private final UpstreamPolicies upstreamPolicies;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Queue<Pending> ready = new ConcurrentLinkedQueue<>();
+    private final Cache<String, WriteBehindStatus> finished;
+    private volatile ItemJournal journal;
+    private Disposable schedule;
+
+    public WriteBehindQueue(WriteBehindProperties properties, WebClient webClient, ItemListCache itemListCache,
+                            UpstreamMetrics upstreamMetrics, UpstreamPolicies upstreamPolicies,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.webClient = webClient;
+        this.itemListCache = itemListCache;
+        this.upstreamMetrics = upstreamMetrics;
+        this.upstreamPolicies = upstreamPolicies;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.finished = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxStatuses())
+                .expireAfterWrite(properties.getStatusRetention())
+                .build();
+        Gauge.builder(PENDING_METRIC, pending, ConcurrentMap::size).register(meterRegistry);
+        Gauge.builder(JOURNAL_USED_METRIC, this, queue -> queue.journal == null ? 0 : queue.journal.usedBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) return;
+        Path directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        journal = ItemJournal.open(directory.resolve(JOURNAL_FILE), properties.getJournalSize().toBytes(), properties.isFsync());
+        List<ItemJournal.Record> records = journal.recover();
+        for (ItemJournal.Record record : records)
+            enqueue(record.getId(), objectMapper.readValue(record.getPayload(), Entry.class));
+        if (!records.isEmpty()) log.info("Resuming {} item writes from the write-behind journal", records.size());
+        schedule = Flux.interval(properties.getDrainInterval())
+                .onBackpressureDrop()
+                //a failed drain must not end the schedule: its items are still pending and go out with the next one
+                .concatMap(tick -> drain().onErrorResume(error -> {
+                    log.warn("Write-behind drain failed: {}", error.toString());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (schedule != null) schedule.dispose();
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Appends the item to the journal; completes once it is there, with a tracking id for {@link #status}.
+     */
+    public Mono<WriteBehindStatus> submit(Item item) {
+        //forcing the mapped file to disk blocks
+        return Mono.fromCallable(() -> {
+            Entry entry = new Entry(UUID.randomUUID().toString(), item);
+            long id = journal.append(objectMapper.writeValueAsBytes(entry));
+            if (id < 0) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write-behind journal is full");
+            journal.sync(id);
+            return enqueue(id, entry).status();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<WriteBehindStatus> status(String trackingId) {
+        return Mono.fromSupplier(() -> {
+            Pending current = pending.get(trackingId);
+            return current != null ? current.status() : finished.getIfPresent(trackingId);
+        });
+    }
+
+    /**
+     * Sends the next batch of items that are due; completes when all of them are settled or rescheduled.
+     */
+    Mono<Void> drain() {
+        return Flux.defer(() -> {
+            List<Pending> batch = new ArrayList<>();
+            long now = System.nanoTime();
+            //items waiting for their backoff go back to the end of the queue
+            for (int seen = 0, size = ready.size(); seen < size && batch.size() < properties.getBatchSize(); seen++) {
+                Pending next = ready.poll();
+                if (next == null) break;
+                if (next.notBeforeNanos - now <= 0) batch.add(next);
+                else ready.add(next);
+            }
+            return Flux.fromIterable(batch);
+        }).flatMap(this::send, properties.getConcurrency()).then();
+    }
+
+    private Mono<Void> send(Pending item) {
+        item.attempts++;
+        return webClient.post().uri(ITEM_END_POINT_V1)
+                .accept(APPLICATION_JSON)
+                .bodyValue(item.entry.getItem())
+                .retrieve()
+                .bodyToMono(Item.class)
+                .transform(upstreamMetrics.timedMono(OPERATION_WRITE_BEHIND_CREATE))
+                .transform(upstreamPolicies.mono(OPERATION_WRITE_BEHIND_CREATE))
+                .map(Item::getId)
+                .defaultIfEmpty("")
+                .doOnNext(itemId -> {
+                    itemListCache.expire();
+                    settle(item, State.CREATED, itemId.isEmpty() ? null : itemId, null);
+                })
+                .onErrorResume(error -> {
+                    failed(item, error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void failed(Pending item, Throwable error) {
+        int status = statusOf(error);
+        boolean permanent = status >= 400 && status < 500 && status != 408 && status != 429;
+        if (permanent || item.attempts >= properties.getMaxAttempts()) {
+            settle(item, State.FAILED, null, messageOf(error));
+            return;
+        }
+        item.lastError = messageOf(error);
+        long backoff = Math.min(properties.getRetryMaxBackoff().toNanos(),
+                properties.getRetryBackoff().toNanos() << Math.min(item.attempts - 1, 20));
+        item.notBeforeNanos = System.nanoTime() + backoff;
+        meterRegistry.counter(WRITES_METRIC, "result", "retried").increment();
+        ready.add(item);
+    }
+
+    private void settle(Pending item, State state, String itemId, String error) {
+        finished.put(item.entry.getTrackingId(), new WriteBehindStatus(item.entry.getTrackingId(), state, itemId, item.attempts, error));
+        pending.remove(item.entry.getTrackingId());
+        journal.settle(item.id);
+        meterRegistry.counter(WRITES_METRIC, "result", state.name().toLowerCase(Locale.ROOT)).increment();
+    }
+
+    private Pending enqueue(long id, Entry entry) {
+        Pending item = new Pending(id, entry);
+        pending.put(entry.getTrackingId(), item);
+        ready.add(item);
+        return item;
+    }
+
+    /**
+     * Journal record of one accepted item.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Entry {
+        private String trackingId;
+        private Item item;
+    }
+
+    private static final class Pending {
+        private final long id;
+        private final Entry entry;
+        private volatile int attempts;
+        private volatile long notBeforeNanos = System.nanoTime();
+        private volatile String lastError;
+
+        private Pending(long id, Entry entry) {
+            this.id = id;
+            this.entry = entry;
+        }
+
+        private WriteBehindStatus status() {
+            return new WriteBehindStatus(entry.getTrackingId(), State.PENDING, null, attempts, lastError);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemCacheTest {
+
+    private final Item oldItem = new Item("id1", "old", 1.0);
+    private final Item newItem = new Item("id1", "new", 2.0);
+
+    private ItemCache itemCache;
+
+    @BeforeEach
+    void setUp() {
+        itemCache = new ItemCache(new ItemCacheProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void write_lookupLoadingDuringWriteIsNotCached() {
+        //given
+        MonoProcessor<Item> slowLoad = MonoProcessor.create();
+        Mono<Item> racingLookup = itemCache.get("id1", id -> slowLoad);
+        racingLookup.subscribe();
+
+        //when
+        StepVerifier.create(itemCache.write("id1", Mono.just(newItem)))
+                .expectNext(newItem)
+                .verifyComplete();
+        slowLoad.onNext(oldItem);
+
+        //then
+        StepVerifier.create(itemCache.get("id1", id -> Mono.just(newItem)))
+                .expectNext(newItem)
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidate_fallbackNoLongerAnswersTheId() {
+        //given
+        itemCache.setFallback(id -> oldItem);
+
+        //when
+        itemCache.invalidate("id1");
+
+        //then
+        StepVerifier.create(itemCache.get("id1", id -> Mono.just(newItem)))
+                .expectNext(newItem)
+                .verifyComplete();
+    }
+
+    @Test
+    void get_lookupWithoutWriteIsCached() {
+        //given
+        AtomicInteger loads = new AtomicInteger();
+        itemCache.get("id1", id -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return oldItem;
+        })).block();
+
+        //when
+        //then
+        StepVerifier.create(itemCache.get("id1", id -> Mono.just(newItem)))
+                .expectNext(oldItem)
+                .verifyComplete();
+        assertThat(loads).hasValue(1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemListCacheTest {
+
+    private final ItemListSnapshot oldList = ItemListSnapshot.of(Collections.singletonList(new Item("id1", "old", 1.0)), new HttpHeaders());
+    private final ItemListSnapshot newList = ItemListSnapshot.of(Collections.singletonList(new Item("id1", "new", 2.0)), new HttpHeaders());
+
+    private ItemListCache itemListCache;
+
+    @BeforeEach
+    void setUp() {
+        ItemListCacheProperties properties = new ItemListCacheProperties();
+        properties.setEnabled(true);
+        itemListCache = new ItemListCache(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void expire_refreshLoadingDuringWriteIsNotServedAsFresh() {
+        //given
+        MonoProcessor<ItemListSnapshot> slowLoad = MonoProcessor.create();
+        itemListCache.get(previous -> slowLoad).subscribe();
+
+        //when
+        itemListCache.expire();
+        slowLoad.onNext(oldList);
+
+        //then
+        StepVerifier.create(itemListCache.get(previous -> Mono.just(newList)))
+                .expectNext(newList.getItems().get(0))
+                .verifyComplete();
+    }
+
+    @Test
+    void get_freshSnapshotIsServedWithoutLoading() {
+        //given
+        AtomicInteger loads = new AtomicInteger();
+        itemListCache.get(previous -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return oldList;
+        })).blockLast();
+
+        //when
+        //then
+        StepVerifier.create(itemListCache.get(previous -> Mono.just(newList)))
+                .expectNext(oldList.getItems().get(0))
+                .verifyComplete();
+        assertThat(loads).hasValue(1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.artarkatesoft.learnreactivespring.cache;
+
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemListCollapserTest {
+
+    private final Item item1 = new Item("id1", "desc1", 1.0);
+    private final Item item2 = new Item("id2", "desc2", 2.0);
+    private final Item item3 = new Item("id3", "desc3", 3.0);
+
+    private ItemListCollapsingProperties properties;
+    private MeterRegistry meterRegistry;
+    private TestPublisher<Item> upstream;
+    private AtomicInteger upstreamCalls;
+    private Supplier<Flux<Item>> upstreamCall;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ItemListCollapsingProperties();
+        properties.setEnabled(true);
+        meterRegistry = new SimpleMeterRegistry();
+        upstream = TestPublisher.createNoncompliant(TestPublisher.Violation.REQUEST_OVERFLOW);
+        upstreamCalls = new AtomicInteger();
+        upstreamCall = () -> upstream.flux().doOnSubscribe(subscription -> upstreamCalls.incrementAndGet());
+    }
+
+    @Test
+    void get_lateCallerGetsEmittedItemsThenLiveTail() {
+        //given
+        ItemListCollapser collapser = new ItemListCollapser(properties, meterRegistry);
+        List<Item> firstCaller = new ArrayList<>();
+        collapser.get("retrieve", upstreamCall).subscribe(firstCaller::add);
+        upstream.next(item1);
+
+        //when
+        //then
+        StepVerifier.create(collapser.get("retrieve", upstreamCall))
+                .expectNext(item1)
+                .then(() -> upstream.next(item2).complete())
+                .expectNext(item2)
+                .verifyComplete();
+        assertThat(firstCaller).containsExactly(item1, item2);
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(meterRegistry.counter(ItemListCollapser.SAVED_METRIC, "operation", "retrieve").count()).isEqualTo(1);
+
+        collapser.get("retrieve", upstreamCall).subscribe();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void get_slowCallerFailsWithoutHoldingBackOthers() {
+        //given
+        properties.setMaxLag(1);
+        ItemListCollapser collapser = new ItemListCollapser(properties, meterRegistry);
+        List<Item> fastCaller = new ArrayList<>();
+        collapser.get("retrieve", upstreamCall).subscribe(fastCaller::add);
+
+        //when
+        //then
+        StepVerifier.create(collapser.get("retrieve", upstreamCall), 0)
+                .then(() -> upstream.next(item1, item2, item3))
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(5));
+        upstream.complete();
+        assertThat(fastCaller).containsExactly(item1, item2, item3);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+}
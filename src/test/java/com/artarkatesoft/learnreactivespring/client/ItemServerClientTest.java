@@ -0,0 +1,117 @@
+package com.artarkatesoft.learnreactivespring.client;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemLookup;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class ItemServerClientTest {
+
+    private final Item item1 = new Item("id1", "desc1", 1.0);
+    private final Item item2 = new Item("id2", "desc2", 2.0);
+
+    private MockWebServer mockBackEnd;
+    private ItemServerClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        ObjectMapper objectMapper = new ObjectMapper();
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                try {
+                    if ((ITEM_END_POINT_V1 + "/id1").equals(request.getPath()))
+                        return json(objectMapper.writeValueAsString(item1)).setHeadersDelay(200, TimeUnit.MILLISECONDS);
+                    if ((ITEM_END_POINT_V1 + "/id2").equals(request.getPath()))
+                        return json(objectMapper.writeValueAsString(item2));
+                    return new MockResponse().setResponseCode(404);
+                } catch (JsonProcessingException e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        });
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ItemCacheProperties cacheProperties = new ItemCacheProperties();
+        cacheProperties.setEnabled(false);
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + mockBackEnd.getPort())
+                .build();
+        client = new ItemServerClient(webClient, new ItemCache(cacheProperties, meterRegistry),
+                new ItemListCache(new ItemListCacheProperties(), meterRegistry),
+                new ItemListCollapser(new ItemListCollapsingProperties(), meterRegistry),
+                new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry),
+                new Hedging(new HedgingProperties(), meterRegistry),
+                new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry),
+                new MultiGetProperties());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void getMany_orderedDeduplicatesAndReportsMissingIds() {
+        //when
+        //then
+        StepVerifier.create(client.getMany(Arrays.asList("id1", "missing", "id2", "id1"), 3, true))
+                .assertNext(lookup -> assertThat(lookup).isEqualTo(ItemLookup.found("id1", item1)))
+                .assertNext(lookup -> {
+                    assertThat(lookup.getId()).isEqualTo("missing");
+                    assertThat(lookup.getStatus()).isEqualTo(404);
+                    assertThat(lookup.getItem()).isNull();
+                })
+                .assertNext(lookup -> assertThat(lookup).isEqualTo(ItemLookup.found("id2", item2)))
+                .verifyComplete();
+        assertThat(mockBackEnd.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void getMany_unorderedEmitsInCompletionOrder() {
+        //when
+        //then
+        StepVerifier.create(client.getMany(Arrays.asList("id1", "id2"), 2, false))
+                .assertNext(lookup -> assertThat(lookup.getId()).isEqualTo("id2"))
+                .assertNext(lookup -> assertThat(lookup.getId()).isEqualTo("id1"))
+                .verifyComplete();
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setBody(body).addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE);
+    }
+}
@@ -0,0 +1,135 @@
+package com.artarkatesoft.learnreactivespring.codec;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.APPLICATION_SMILE_VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+class ItemJsonDecoderTest {
+
+    private static final ResolvableType ITEM_TYPE = ResolvableType.forClass(Item.class);
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    void decode_emitsEachItemOfArraySplitAcrossBuffers() {
+        //given
+        ItemJsonDecoder decoder = new ItemJsonDecoder(false);
+        Flux<DataBuffer> body = Flux.just(
+                "[{\"id\":\"id1\",\"descr", "iption\":\"desc1\",\"price\":1.5,\"extra\":{\"a\":[1,{\"id\":\"x\"}]}},",
+                "{\"id\":\"id2\",\"description\":null,\"price\":null},{\"price\":\"2.", "25\",\"id\":\"id3\"}]")
+                .map(this::buffer);
+
+        //when
+        Flux<Item> items = decoder.decode(body, ITEM_TYPE, APPLICATION_JSON, Collections.emptyMap());
+
+        //then
+        StepVerifier.create(items)
+                .expectNext(new Item("id1", "desc1", 1.5))
+                .assertNext(item -> {
+                    assertThat(item.getId()).isEqualTo("id2");
+                    assertThat(item.getDescription()).isNull();
+                    assertThat(item.hasPrice()).isFalse();
+                })
+                .expectNext(new Item("id3", null, 2.25))
+                .verifyComplete();
+    }
+
+    @Test
+    void decodeToMono_readsSingleObjectAndRejectsArray() {
+        //given
+        ItemJsonDecoder decoder = new ItemJsonDecoder(false);
+
+        //when
+        //then
+        StepVerifier.create(decoder.decodeToMono(Flux.just(buffer("{\"id\":\"id1\",\"price\":3}")), ITEM_TYPE, APPLICATION_JSON, null))
+                .expectNext(new Item("id1", null, 3.0))
+                .verifyComplete();
+        StepVerifier.create(decoder.decodeToMono(Flux.just(buffer("[{\"id\":\"id1\"}]")), ITEM_TYPE, APPLICATION_JSON, null))
+                .verifyError(DecodingException.class);
+    }
+
+    @Test
+    void decodeToMono_readsObjectSplitAcrossBuffersAndRejectsTwo() {
+        //given
+        ItemJsonDecoder decoder = new ItemJsonDecoder(false);
+
+        //when
+        //then
+        StepVerifier.create(decoder.decodeToMono(Flux.just(buffer("{\"id\":\"id1\",\"pr"), buffer("ice\":3}")), ITEM_TYPE, APPLICATION_JSON, null))
+                .expectNext(new Item("id1", null, 3.0))
+                .verifyComplete();
+        StepVerifier.create(decoder.decodeToMono(Flux.just(buffer("{\"id\":\"id1\"}\n{\"id\":\"id2\"}")), ITEM_TYPE, APPLICATION_JSON, null))
+                .verifyError(DecodingException.class);
+        StepVerifier.create(decoder.decodeToMono(Flux.empty(), ITEM_TYPE, APPLICATION_JSON, null))
+                .verifyComplete();
+    }
+
+    @Test
+    void decodeToMono_bodyOverMaxInMemorySizeFails() {
+        //given
+        ItemJsonDecoder decoder = new ItemJsonDecoder(false);
+        decoder.setMaxInMemorySize(16);
+
+        //when
+        //then
+        StepVerifier.create(decoder.decodeToMono(Flux.just(buffer("{\"id\":\"id1\","), buffer("\"description\":\"too long\"}")), ITEM_TYPE, APPLICATION_JSON, null))
+                .verifyError(DataBufferLimitException.class);
+    }
+
+    @Test
+    void decode_truncatedBodyFails() {
+        //given
+        ItemJsonDecoder decoder = new ItemJsonDecoder(false);
+
+        //when
+        Flux<Item> items = decoder.decode(Flux.just(buffer("[{\"id\":\"id1\"},{\"id\":")), ITEM_TYPE, APPLICATION_JSON, null);
+
+        //then
+        StepVerifier.create(items)
+                .expectNext(new Item("id1", null, Item.NO_PRICE))
+                .verifyError(DecodingException.class);
+    }
+
+    @Test
+    void decode_dedupesRepeatedDescriptions() {
+        //given
+        ItemJsonDecoder decoder = new ItemJsonDecoder(true);
+        Flux<DataBuffer> body = Flux.just(buffer("[{\"id\":\"id1\",\"description\":\"same\"},{\"id\":\"id2\",\"description\":\"same\"}]"));
+
+        //when
+        List<Item> items = decoder.decode(body, ITEM_TYPE, APPLICATION_JSON, null).collectList().block();
+
+        //then
+        assertThat(items).hasSize(2);
+        assertThat(items.get(0).getDescription()).isEqualTo("same").isSameAs(items.get(1).getDescription());
+    }
+
+    @Test
+    void canDecode_onlyItemsInUtf8Json() {
+        ItemJsonDecoder decoder = new ItemJsonDecoder(false);
+
+        assertThat(decoder.canDecode(ITEM_TYPE, APPLICATION_JSON)).isTrue();
+        assertThat(decoder.canDecode(ITEM_TYPE, new MimeType(APPLICATION_JSON, StandardCharsets.UTF_16))).isFalse();
+        assertThat(decoder.canDecode(ITEM_TYPE, MimeType.valueOf(APPLICATION_SMILE_VALUE))).isFalse();
+        assertThat(decoder.canDecode(ResolvableType.forClass(Object.class), APPLICATION_JSON)).isFalse();
+    }
+
+    private DataBuffer buffer(String json) {
+        return bufferFactory.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,182 @@
+package com.artarkatesoft.learnreactivespring.config;
+
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.eventloop.EventLoops;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.ConcurrencyLimiter;
+import com.artarkatesoft.learnreactivespring.resilience.ItemServerBulkheads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.APPLICATION_SMILE_VALUE;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class WebClientConfigTest {
+
+    private final WebClientConfig webClientConfig = new WebClientConfig();
+    private final List<Item> items = Arrays.asList(new Item("id1", "desc1", 1.0), new Item("id2", "desc2", 2.0));
+
+    private MockWebServer mockBackEnd;
+    private ItemServerProperties properties;
+    private MeterRegistry meterRegistry;
+    private ConnectionProvider connectionProvider;
+    private ClientHttpConnector connector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        properties = new ItemServerProperties();
+        properties.setUrl("http://localhost:" + mockBackEnd.getPort());
+        properties.getPool().setMetrics(false);
+        properties.getLoadBalancer().setHealthCheckEnabled(false);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionProvider.dispose();
+        if (connector instanceof DisposableBean) ((DisposableBean) connector).destroy();
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void itemServerWebClient_decompressesGzipResponses() throws Exception {
+        //given
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(new ObjectMapper().writeValueAsBytes(items));
+        }
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(new Buffer().write(gzipped.toByteArray()))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .addHeader(CONTENT_ENCODING, "gzip"));
+
+        //when
+        WebClient webClient = itemServerWebClient();
+
+        //then
+        StepVerifier.create(webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON).retrieve().bodyToFlux(Item.class))
+                .expectNextSequence(items)
+                .verifyComplete();
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+        assertThat(recordedRequest.getHeader(ACCEPT_ENCODING)).contains("gzip");
+    }
+
+    @Test
+    void itemServerWebClient_prefersSmileAndDecodesIt() throws Exception {
+        //given
+        properties.setCodec(ItemServerProperties.Codec.SMILE);
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(new Buffer().write(new ObjectMapper(new SmileFactory()).writeValueAsBytes(items)))
+                .addHeader(CONTENT_TYPE, APPLICATION_SMILE_VALUE));
+
+        //when
+        WebClient webClient = itemServerWebClient();
+
+        //then
+        StepVerifier.create(webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON).retrieve().bodyToFlux(Item.class))
+                .expectNextSequence(items)
+                .verifyComplete();
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+        assertThat(recordedRequest.getHeader(ACCEPT)).isEqualTo(APPLICATION_SMILE_VALUE + ", application/json;q=0.9");
+    }
+
+    @Test
+    void itemServerWebClient_fullWriteBulkheadLeavesReadsUnaffected() throws Exception {
+        //given
+        properties.getBulkheads().setEnabled(true);
+        properties.getBulkheads().getWrite().setMaxConcurrentCalls(1);
+        String itemsJson = new ObjectMapper().writeValueAsString(items);
+        String itemJson = new ObjectMapper().writeValueAsString(items.get(0));
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("GET".equals(request.getMethod()))
+                    return new MockResponse().setBody(itemsJson).addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE);
+                return new MockResponse().setBody(itemJson).addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                        .setHeadersDelay(300, TimeUnit.MILLISECONDS);
+            }
+        });
+        WebClient webClient = itemServerWebClient();
+        CompletableFuture<Item> slowWrite = webClient.post().uri(ITEM_END_POINT_V1).bodyValue(items.get(0))
+                .retrieve().bodyToMono(Item.class).toFuture();
+
+        //when
+        //then
+        StepVerifier.create(webClient.post().uri(ITEM_END_POINT_V1).bodyValue(items.get(1)).retrieve().bodyToMono(Item.class))
+                .verifyError(BulkheadFullException.class);
+        StepVerifier.create(webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON).retrieve().bodyToFlux(Item.class))
+                .expectNextSequence(items)
+                .verifyComplete();
+        assertThat(slowWrite.get(5, TimeUnit.SECONDS)).isEqualTo(items.get(0));
+    }
+
+    @Test
+    void itemServerWebClient_readHoldsItsBulkheadSlotUntilBodyIsRead() throws Exception {
+        //given
+        properties.getBulkheads().setEnabled(true);
+        properties.getBulkheads().getRead().setMaxConcurrentCalls(1);
+        String itemsJson = new ObjectMapper().writeValueAsString(items);
+        for (int i = 0; i < 2; i++)
+            mockBackEnd.enqueue(new MockResponse().setBody(itemsJson).addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        WebClient webClient = itemServerWebClient();
+        ClientResponse unread = webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON).exchange().block();
+
+        //when
+        //then
+        StepVerifier.create(webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON).retrieve().bodyToFlux(Item.class))
+                .verifyError(BulkheadFullException.class);
+        StepVerifier.create(unread.bodyToFlux(Item.class))
+                .expectNextSequence(items)
+                .verifyComplete();
+        StepVerifier.create(webClient.get().uri(ITEM_END_POINT_V1).accept(APPLICATION_JSON).retrieve().bodyToFlux(Item.class))
+                .expectNextSequence(items)
+                .verifyComplete();
+    }
+
+    private WebClient itemServerWebClient() {
+        EventLoops eventLoops = new EventLoops(new EventLoopProperties(), meterRegistry);
+        connectionProvider = webClientConfig.itemServerConnectionProvider(properties);
+        HttpClient httpClient = webClientConfig.itemServerHttpClient(connectionProvider, properties, eventLoops);
+        connector = webClientConfig.itemServerConnector(httpClient, properties, meterRegistry, eventLoops);
+        return webClientConfig.itemServerWebClient(
+                WebClient.builder(),
+                connector,
+                properties,
+                new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry),
+                webClientConfig.itemServerLoadBalancer(properties, meterRegistry, httpClient),
+                new ConcurrencyLimiter(new ConcurrencyLimitProperties(), meterRegistry),
+                new ItemServerBulkheads(properties, meterRegistry));
+    }
+}
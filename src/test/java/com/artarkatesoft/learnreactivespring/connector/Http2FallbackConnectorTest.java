@@ -0,0 +1,152 @@
+package com.artarkatesoft.learnreactivespring.connector;
+
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Http2FallbackConnectorTest {
+
+    private ItemServerProperties properties;
+    private MeterRegistry meterRegistry;
+    private Http2FallbackConnector connector;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ItemServerProperties();
+        properties.setProtocol(ItemServerProperties.Protocol.H2C);
+        properties.getHttp2().setMaxConnections(1);
+        meterRegistry = new SimpleMeterRegistry();
+        connector = new Http2FallbackConnector(properties, new ReactorClientHttpConnector(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connector.destroy();
+    }
+
+    @Test
+    void connect_multiplexesConcurrentRequestsOverOneConnection() {
+        //given
+        Set<InetSocketAddress> clientAddresses = ConcurrentHashMap.newKeySet();
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C)
+                .handle((request, response) -> {
+                    clientAddresses.add(request.remoteAddress());
+                    return response.sendString(Mono.delay(Duration.ofMillis(50))
+                            .thenReturn(request.requestHeaders().get("x-http2-stream-id", "none")));
+                })
+                .bindNow();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .clientConnector(connector)
+                .build();
+
+        //when
+        List<String> bodies = Flux.range(0, 20)
+                .flatMap(i -> webClient.get().uri("/v1/items").retrieve().bodyToMono(String.class))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        server.disposeNow();
+
+        //then
+        assertThat(bodies).hasSize(20).doesNotContain("none");
+        assertThat(clientAddresses).hasSize(1);
+        assertThat(meterRegistry.counter(Http2FallbackConnector.FALLBACKS_METRIC).count()).isZero();
+    }
+
+    @Test
+    void connect_fallsBackToHttp11WhenServerDoesNotSpeakHttp2() {
+        //given
+        DisposableServer http11Server = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> response.sendString(Mono.just(request.version().text())))
+                .bindNow();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + http11Server.port())
+                .clientConnector(connector)
+                .build();
+
+        //when
+        String first = webClient.get().uri("/v1/items").retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10));
+        String second = webClient.get().uri("/v1/items").retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10));
+        http11Server.disposeNow();
+
+        //then
+        assertThat(first).isEqualTo("HTTP/1.1");
+        assertThat(second).isEqualTo("HTTP/1.1");
+        assertThat(meterRegistry.counter(Http2FallbackConnector.FALLBACKS_METRIC).count()).isEqualTo(1);
+    }
+
+    @Test
+    void connect_doesNotResendAfterTransportFailure() throws Exception {
+        //given
+        connector.destroy();
+        AtomicInteger http11Calls = new AtomicInteger();
+        connector = new Http2FallbackConnector(properties, (method, uri, requestCallback) -> {
+            http11Calls.incrementAndGet();
+            return Mono.error(new IllegalStateException("not expected"));
+        }, meterRegistry);
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:1")
+                .clientConnector(connector)
+                .build();
+
+        //when
+        Mono<String> created = webClient.post().uri("/v1/items").bodyValue("{}").retrieve().bodyToMono(String.class);
+
+        //then
+        StepVerifier.create(created)
+                .expectErrorSatisfies(error -> assertThat(Http2FallbackConnector.isNegotiationFailure(error)).isFalse())
+                .verify(Duration.ofSeconds(10));
+        assertThat(http11Calls).hasValue(0);
+        assertThat(meterRegistry.counter(Http2FallbackConnector.FALLBACKS_METRIC).count()).isZero();
+    }
+
+    @Test
+    void connect_silentResponseFailsAfterReadTimeoutWithoutFallback() throws Exception {
+        //given
+        connector.destroy();
+        properties.setReadTimeout(Duration.ofMillis(300));
+        connector = new Http2FallbackConnector(properties, new ReactorClientHttpConnector(), meterRegistry);
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C)
+                .handle((request, response) -> response.sendString(Mono.delay(Duration.ofSeconds(5)).thenReturn("late")))
+                .bindNow();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .clientConnector(connector)
+                .build();
+
+        //when
+        Mono<String> body = webClient.get().uri("/v1/items").retrieve().bodyToMono(String.class);
+
+        //then
+        StepVerifier.create(body)
+                .expectErrorSatisfies(error -> assertThat(Http2FallbackConnector.isNegotiationFailure(error)).isFalse())
+                .verify(Duration.ofSeconds(3));
+        server.disposeNow();
+        assertThat(meterRegistry.counter(Http2FallbackConnector.FALLBACKS_METRIC).count()).isZero();
+    }
+}
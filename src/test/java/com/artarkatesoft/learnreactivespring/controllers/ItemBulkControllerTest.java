@@ -0,0 +1,173 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.config.BulkWriteProperties;
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemWriteResult;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
+
+class ItemBulkControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MockWebServer mockBackEnd;
+    private ItemCache itemCache;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + mockBackEnd.getPort())
+                .build();
+        itemCache = new ItemCache(new ItemCacheProperties(), meterRegistry);
+        ItemServerClient itemServerClient = new ItemServerClient(webClient, itemCache,
+                new ItemListCache(new ItemListCacheProperties(), meterRegistry),
+                new ItemListCollapser(new ItemListCollapsingProperties(), meterRegistry),
+                new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry),
+                new Hedging(new HedgingProperties(), meterRegistry),
+                new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry), new MultiGetProperties());
+        ItemBulkController controller = new ItemBulkController(itemServerClient, new BulkWriteProperties());
+        webTestClient = WebTestClient.bindToController(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void createItems_orderedStreamsOneResultPerItemAndKeepsGoingAfterAFailure() {
+        //given
+        mockBackEnd.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                try {
+                    Item item = objectMapper.readValue(request.getBody().readUtf8(), Item.class);
+                    if ("bad".equals(item.getDescription())) return new MockResponse().setResponseCode(400);
+                    item.setId("new-" + item.getDescription());
+                    return new MockResponse()
+                            .setResponseCode(201)
+                            .setBody(objectMapper.writeValueAsString(item))
+                            .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                            //the first item completes last
+                            .setHeadersDelay("slow".equals(item.getDescription()) ? 200 : 0, TimeUnit.MILLISECONDS);
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        });
+        List<Item> items = Arrays.asList(new Item(null, "slow", 1.0), new Item(null, "bad", 2.0), new Item(null, "fast", 3.0));
+
+        //when
+        List<ItemWriteResult> results = webTestClient.post().uri("/client/bulk/createItems?ordered=true&concurrency=3")
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_STREAM_JSON)
+                .bodyValue(items)
+                .exchange()
+
+                //then
+                .expectStatus().isOk()
+                .expectBodyList(ItemWriteResult.class)
+                .returnResult().getResponseBody();
+
+        assertThat(results).extracting(ItemWriteResult::getIndex).containsExactly(0L, 1L, 2L);
+        assertThat(results).extracting(ItemWriteResult::getStatus).containsExactly(201, 400, 201);
+        assertThat(results).extracting(ItemWriteResult::getId).containsExactly("new-slow", null, "new-fast");
+        assertThat(results.get(1).getError()).isNotBlank();
+        assertThat(mockBackEnd.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void updateItems_rejectsItemsWithoutIdWithoutCallingUpstream() throws InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody("{\"id\":\"id1\",\"description\":\"updated\",\"price\":1.0}")
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        List<Item> items = Arrays.asList(new Item("id1", "updated", 1.0), new Item(null, "no id", 2.0));
+
+        //when
+        List<ItemWriteResult> results = webTestClient.put().uri("/client/bulk/updateItems?ordered=true")
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_STREAM_JSON)
+                .bodyValue(items)
+                .exchange()
+
+                //then
+                .expectStatus().isOk()
+                .expectBodyList(ItemWriteResult.class)
+                .returnResult().getResponseBody();
+
+        assertThat(results).containsExactly(
+                ItemWriteResult.success(0, "id1", 200),
+                ItemWriteResult.failure(1, null, 400, "Item has no id"));
+        assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo(ITEM_END_POINT_V1 + "/id1");
+        assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void updateItems_invalidatesCachedItem() {
+        //given
+        Item cached = new Item("id1", "cached", 1.0);
+        Item updated = new Item("id1", "updated", 2.0);
+        itemCache.get("id1", id -> Mono.just(cached)).block();
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody("{\"id\":\"id1\",\"description\":\"updated\",\"price\":2.0}")
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+
+        //when
+        webTestClient.put().uri("/client/bulk/updateItems")
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_STREAM_JSON)
+                .bodyValue(Collections.singletonList(updated))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ItemWriteResult.class).contains(ItemWriteResult.success(0, "id1", 200));
+
+        //then
+        StepVerifier.create(itemCache.get("id1", id -> Mono.just(updated)))
+                .expectNext(updated)
+                .verifyComplete();
+    }
+}
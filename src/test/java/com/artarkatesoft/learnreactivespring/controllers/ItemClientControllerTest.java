@@ -1,8 +1,28 @@
 package com.artarkatesoft.learnreactivespring.controllers;
 
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.config.CodecConfig;
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
 import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemListQuery;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -12,23 +32,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
-import static org.springframework.http.HttpHeaders.LOCATION;
+import static org.springframework.http.HttpHeaders.*;
 import static org.springframework.http.MediaType.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +66,10 @@ class ItemClientControllerTest {
     private Flux<Item> repositoryFlux;
     private List<Item> itemsInRepo;
     private ObjectMapper objectMapper;
+    private MeterRegistry meterRegistry;
+    private UpstreamMetrics upstreamMetrics;
+    private ItemCache itemCache;
+    private WebClient webClient;
     private ItemClientController controller;
 
     @BeforeAll
@@ -57,8 +87,14 @@ class ItemClientControllerTest {
     void initialize() {
         String baseUrl = String.format("http://localhost:%s",
                 mockBackEnd.getPort());
-        controller = new ItemClientController();
-        controller.setItemServerUrl(baseUrl);
+        meterRegistry = new SimpleMeterRegistry();
+        upstreamMetrics = new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry);
+        itemCache = new ItemCache(new ItemCacheProperties(), meterRegistry);
+        webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .filter(upstreamMetrics.statusRecorder())
+                .build();
+        controller = controller(new ItemListCacheProperties());
 
         defaultItem = new Item("MyId", "desc4", 123.99);
         itemsInRepo = IntStream
@@ -77,7 +113,7 @@ class ItemClientControllerTest {
                 .setBody(objectMapper.writeValueAsString(itemsInRepo))
                 .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
         //when
-        Flux<Item> itemFlux = controller.getAllItemsUsingRetrieve();
+        Flux<Item> itemFlux = controller.getAllItemsUsingRetrieve(new ItemListQuery());
 
         //then
         StepVerifier.create(itemFlux)
@@ -89,6 +125,13 @@ class ItemClientControllerTest {
 
         assertEquals("GET", recordedRequest.getMethod());
         assertEquals(ITEM_END_POINT_V1, recordedRequest.getPath());
+
+        Timer timer = meterRegistry.get(UpstreamMetrics.REQUESTS_METRIC)
+                .tags("operation", OPERATION_RETRIEVE, "outcome", "SUCCESS", "status", "200")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(meterRegistry.get(UpstreamMetrics.ITEMS_METRIC).summary().totalAmount()).isEqualTo(6);
+        assertThat(meterRegistry.get(UpstreamMetrics.IN_FLIGHT_METRIC).gauge().value()).isZero();
     }
 
     @Test
@@ -98,7 +141,7 @@ class ItemClientControllerTest {
                 .setBody(objectMapper.writeValueAsString(itemsInRepo))
                 .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
         //when
-        Flux<Item> itemFlux = controller.getAllItemsUsingExchange();
+        Flux<Item> itemFlux = controller.getAllItemsUsingExchange(new ItemListQuery());
 
         //then
         StepVerifier.create(itemFlux)
@@ -114,6 +157,197 @@ class ItemClientControllerTest {
         assertEquals(ITEM_END_POINT_V1, recordedRequest.getPath());
     }
 
+    @Test
+    void getAllItemsUsingRetrieve_ndjson() throws JsonProcessingException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        CodecCustomizer ndjsonCodecCustomizer = new CodecConfig().ndjsonCodecCustomizer(objectMapper);
+        WebTestClient webTestClient = WebTestClient.bindToController(controller)
+                .httpMessageCodecs(ndjsonCodecCustomizer::customize)
+                .configureClient()
+                .codecs(ndjsonCodecCustomizer::customize)
+                .build();
+
+        //when
+        Flux<Item> itemFlux = webTestClient.get().uri("/client/retrieve")
+                .accept(CodecConfig.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.APPLICATION_NDJSON)
+                .returnResult(Item.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(itemFlux)
+                .expectNextSequence(itemsInRepo)
+                .verifyComplete();
+
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+
+        assertEquals(ITEM_END_POINT_V1, recordedRequest.getPath());
+    }
+
+    @Test
+    void getAllItemsUsingExchange_eventStream() throws JsonProcessingException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        WebTestClient webTestClient = WebTestClient.bindToController(controller).build();
+
+        //when
+        Flux<Item> itemFlux = webTestClient.get().uri("/client/exchange")
+                .accept(TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(TEXT_EVENT_STREAM)
+                .returnResult(Item.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(itemFlux)
+                .expectNextSequence(itemsInRepo)
+                .verifyComplete();
+
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+
+        assertEquals(ITEM_END_POINT_V1, recordedRequest.getPath());
+    }
+
+    @Test
+    void getAllItemsUsingRetrieve_filtersSkipsAndLimitsWhileStreaming() throws JsonProcessingException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        WebTestClient webTestClient = WebTestClient.bindToController(controller).build();
+
+        //when
+        Flux<Item> itemFlux = webTestClient.get().uri("/client/retrieve?minPrice=200&maxPrice=500&description=DESC&offset=1&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Item.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(itemFlux)
+                .expectNext(itemsInRepo.get(2), itemsInRepo.get(3))
+                .verifyComplete();
+
+        assertEquals(ITEM_END_POINT_V1, mockBackEnd.takeRequest().getPath());
+    }
+
+    @Test
+    void getAllItemsUsingExchange_negativeLimitIsBadRequest() {
+        //given
+        WebTestClient webTestClient = WebTestClient.bindToController(controller).build();
+
+        //when
+        webTestClient.get().uri("/client/exchange?limit=-1")
+                .exchange()
+
+                //then
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getAllItemsUsingRetrieve_smile() throws JsonProcessingException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        WebTestClient webTestClient = WebTestClient.bindToController(controller).build();
+
+        //when
+        Flux<Item> itemFlux = webTestClient.get().uri("/client/retrieve")
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.APPLICATION_SMILE)
+                .returnResult(Item.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(itemFlux)
+                .expectNextSequence(itemsInRepo)
+                .verifyComplete();
+
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+
+        assertEquals(ITEM_END_POINT_V1, recordedRequest.getPath());
+    }
+
+    @Test
+    void getAllItemsUsingRetrieve_expiredListSnapshotIsRevalidatedWithEtag() throws JsonProcessingException, InterruptedException {
+        //given
+        ItemListCacheProperties listCacheProperties = new ItemListCacheProperties();
+        listCacheProperties.setEnabled(true);
+        listCacheProperties.setRefreshAfter(Duration.ZERO);
+        listCacheProperties.setMaxStale(Duration.ZERO);
+        ItemClientController cachingController = cachingController(listCacheProperties);
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .addHeader(ETAG, "\"v1\""));
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(304));
+
+        //when
+        StepVerifier.create(cachingController.getAllItemsUsingRetrieve(new ItemListQuery()))
+                .expectNextSequence(itemsInRepo)
+                .verifyComplete();
+        Flux<Item> itemFlux = cachingController.getAllItemsUsingExchange(new ItemListQuery());
+
+        //then
+        StepVerifier.create(itemFlux)
+                .expectNextSequence(itemsInRepo)
+                .verifyComplete();
+
+        assertThat(mockBackEnd.takeRequest().getHeader(IF_NONE_MATCH)).isNull();
+        assertThat(mockBackEnd.takeRequest().getHeader(IF_NONE_MATCH)).isEqualTo("\"v1\"");
+        assertThat(meterRegistry.counter(ItemListCache.REVALIDATIONS_METRIC, "result", "not_modified").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(ItemListCache.READS_METRIC, "result", "expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllItemsUsingRetrieve_staleListSnapshotIsServedWhileRevalidating() throws JsonProcessingException, InterruptedException {
+        //given
+        ItemListCacheProperties listCacheProperties = new ItemListCacheProperties();
+        listCacheProperties.setEnabled(true);
+        listCacheProperties.setRefreshAfter(Duration.ZERO);
+        ItemClientController cachingController = cachingController(listCacheProperties);
+        List<Item> changedItems = itemsInRepo.subList(0, 2);
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .addHeader(LAST_MODIFIED, "Wed, 21 Oct 2026 07:28:00 GMT"));
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(changedItems))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(304));
+        StepVerifier.create(cachingController.getAllItemsUsingRetrieve(new ItemListQuery()))
+                .expectNextCount(itemsInRepo.size())
+                .verifyComplete();
+
+        //when
+        Flux<Item> staleFlux = cachingController.getAllItemsUsingRetrieve(new ItemListQuery());
+
+        //then
+        StepVerifier.create(staleFlux)
+                .expectNextSequence(itemsInRepo)
+                .verifyComplete();
+        mockBackEnd.takeRequest();
+        assertThat(mockBackEnd.takeRequest().getHeader(IF_MODIFIED_SINCE)).isEqualTo("Wed, 21 Oct 2026 07:28:00 GMT");
+        awaitRevalidation("modified");
+        StepVerifier.create(cachingController.getAllItemsUsingRetrieve(new ItemListQuery()))
+                .expectNextSequence(changedItems)
+                .verifyComplete();
+        mockBackEnd.takeRequest();
+        awaitRevalidation("not_modified");
+        assertThat(meterRegistry.counter(ItemListCache.READS_METRIC, "result", "stale").count()).isEqualTo(2);
+    }
+
     @Test
     void getOneItemUsingRetrieve() throws JsonProcessingException, InterruptedException {
         //given
@@ -156,6 +390,65 @@ class ItemClientControllerTest {
         assertThat(recordedRequest.getPath()).isEqualTo(ITEM_END_POINT_V1 + "/MyId");
     }
 
+    @Test
+    void getOneItemUsingRetrieve_concurrentMissesShareOneUpstreamCall() throws JsonProcessingException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(defaultItem))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .setBodyDelay(100, TimeUnit.MILLISECONDS));
+        //when
+        Mono<Tuple2<Item, Item>> bothMono = Mono.zip(
+                controller.getOneItemUsingRetrieve("MyId"),
+                controller.getOneItemUsingExchange("MyId"));
+
+        //then
+        StepVerifier.create(bothMono)
+                .expectSubscription()
+                .expectNext(Tuples.of(defaultItem, defaultItem))
+                .verifyComplete();
+        StepVerifier.create(controller.getOneItemUsingRetrieve("MyId"))
+                .expectNext(defaultItem)
+                .verifyComplete();
+
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+
+        assertThat(recordedRequest.getPath()).isEqualTo(ITEM_END_POINT_V1 + "/MyId");
+        assertThat(mockBackEnd.takeRequest(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void updateItem_invalidatesCachedItem() throws JsonProcessingException, InterruptedException {
+        //given
+        Item updatedItem = new Item("MyId", "descToSet", 9.01);
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(defaultItem))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(updatedItem))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(updatedItem))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        StepVerifier.create(controller.getOneItemUsingRetrieve("MyId"))
+                .expectNext(defaultItem)
+                .verifyComplete();
+
+        //when
+        StepVerifier.create(controller.updateItem(updatedItem, "MyId"))
+                .expectNext(updatedItem)
+                .verifyComplete();
+
+        //then
+        StepVerifier.create(controller.getOneItemUsingRetrieve("MyId"))
+                .expectNext(updatedItem)
+                .verifyComplete();
+
+        assertThat(mockBackEnd.takeRequest().getMethod()).isEqualTo("GET");
+        assertThat(mockBackEnd.takeRequest().getMethod()).isEqualTo("PUT");
+        assertThat(mockBackEnd.takeRequest().getMethod()).isEqualTo("GET");
+    }
+
     @Test
     void postOneItem() throws JsonProcessingException, InterruptedException {
         //given
@@ -273,6 +566,11 @@ class ItemClientControllerTest {
 
         assertThat(recordedRequest.getMethod()).isEqualTo("DELETE");
         assertThat(recordedRequest.getPath()).isEqualTo(ITEM_END_POINT_V1 + "/MyId");
+
+        Timer timer = meterRegistry.get(UpstreamMetrics.REQUESTS_METRIC)
+                .tags("operation", OPERATION_DELETE, "outcome", "CLIENT_ERROR", "status", "404")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
     }
 
     @Test
@@ -377,4 +675,24 @@ class ItemClientControllerTest {
         assertThat(recordedRequest.getMethod()).isEqualTo("GET");
         assertThat(recordedRequest.getPath()).isEqualTo(ITEM_END_POINT_V1 + "/runtimeException");
     }
+
+    //background revalidations complete after the read that started them
+    private void awaitRevalidation(String result) throws InterruptedException {
+        Counter revalidations = meterRegistry.counter(ItemListCache.REVALIDATIONS_METRIC, "result", result);
+        for (int i = 0; i < 200 && revalidations.count() == 0; i++) TimeUnit.MILLISECONDS.sleep(10);
+        assertThat(revalidations.count()).isEqualTo(1);
+    }
+
+    private ItemClientController cachingController(ItemListCacheProperties listCacheProperties) {
+        return controller(listCacheProperties);
+    }
+
+    private ItemClientController controller(ItemListCacheProperties listCacheProperties) {
+        Hedging hedging = new Hedging(new HedgingProperties(), meterRegistry);
+        UpstreamPolicies upstreamPolicies = new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry);
+        return new ItemClientController(new ItemServerClient(webClient, itemCache,
+                new ItemListCache(listCacheProperties, meterRegistry),
+                new ItemListCollapser(new ItemListCollapsingProperties(), meterRegistry), upstreamMetrics, hedging,
+                upstreamPolicies, new MultiGetProperties()));
+    }
 }
@@ -0,0 +1,208 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.cache.ItemListCollapser;
+import com.artarkatesoft.learnreactivespring.client.ItemServerClient;
+import com.artarkatesoft.learnreactivespring.config.CodecConfig;
+import com.artarkatesoft.learnreactivespring.config.ConcurrencyLimitProperties;
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.ItemListCollapsingProperties;
+import com.artarkatesoft.learnreactivespring.config.MultiGetProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.ItemLookup;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.ConcurrencyLimiter;
+import com.artarkatesoft.learnreactivespring.resilience.Hedging;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class ItemClientRoutesTest {
+
+    private static MockWebServer mockBackEnd;
+
+    private ObjectMapper objectMapper;
+    private List<Item> itemsInRepo;
+    private WebTestClient webTestClient;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        mockBackEnd.shutdown();
+    }
+
+    @BeforeEach
+    void initialize() {
+        objectMapper = new ObjectMapper();
+        itemsInRepo = Arrays.asList(new Item("id1", "desc1", 111), new Item("id2", "desc2", 222), new Item("id3", "desc3", 333));
+        webTestClient = routesOver(WebClient.builder());
+    }
+
+    private WebTestClient routesOver(WebClient.Builder webClientBuilder) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry);
+        UpstreamPolicies upstreamPolicies = new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry);
+        Hedging hedging = new Hedging(new HedgingProperties(), meterRegistry);
+        ItemCache itemCache = new ItemCache(new ItemCacheProperties(), meterRegistry);
+        WebClient webClient = webClientBuilder
+                .baseUrl(String.format("http://localhost:%s", mockBackEnd.getPort()))
+                .build();
+        ItemServerClient itemServerClient = new ItemServerClient(webClient, itemCache,
+                new ItemListCache(new ItemListCacheProperties(), meterRegistry),
+                new ItemListCollapser(new ItemListCollapsingProperties(), meterRegistry), upstreamMetrics, hedging,
+                upstreamPolicies, new MultiGetProperties());
+        CodecCustomizer ndjsonCodecCustomizer = new CodecConfig().ndjsonCodecCustomizer(objectMapper);
+        return WebTestClient.bindToRouterFunction(ItemClientRoutes.routes(new ItemClientHandler(itemServerClient)))
+                .handlerStrategies(HandlerStrategies.builder()
+                        .codecs(ndjsonCodecCustomizer::customize)
+                        .exceptionHandler(new UpstreamExceptionHandler())
+                        .build())
+                .configureClient()
+                .codecs(ndjsonCodecCustomizer::customize)
+                .build();
+    }
+
+    @Test
+    void getAllItemsUsingRetrieve_appliesQueryAndNegotiatesNdjson() throws IOException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+
+        //when
+        Flux<Item> itemFlux = webTestClient.get().uri("/client/retrieve?minPrice=200&limit=1")
+                .accept(CodecConfig.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.APPLICATION_NDJSON)
+                .returnResult(Item.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(itemFlux)
+                .expectNext(itemsInRepo.get(1))
+                .verifyComplete();
+        assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo(ITEM_END_POINT_V1);
+    }
+
+    @Test
+    void getAllItemsUsingExchange_invalidParameterIsBadRequest() {
+        //when
+        webTestClient.get().uri("/client/exchange?limit=many")
+                .exchange()
+
+                //then
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getItemsUsingRetrieve_routesIdsToMultiGet() throws IOException, InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(itemsInRepo.get(0)))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(404));
+
+        //when
+        Flux<ItemLookup> lookups = webTestClient.get().uri("/client/retrieve?ids=id1,missing&concurrency=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ItemLookup.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(lookups)
+                .assertNext(lookup -> assertThat(lookup.getItem()).isEqualTo(itemsInRepo.get(0)))
+                .assertNext(lookup -> assertThat(lookup.getStatus()).isEqualTo(404))
+                .verifyComplete();
+        assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo(ITEM_END_POINT_V1 + "/id1");
+        assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo(ITEM_END_POINT_V1 + "/missing");
+    }
+
+    @Test
+    void createItem() throws IOException, InterruptedException {
+        //given
+        Item created = new Item("MyId", "descToSet", 9.01);
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(objectMapper.writeValueAsString(created))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        Item itemSent = new Item(null, "descToSet", 9.01);
+
+        //when
+        webTestClient.post().uri("/client/createItem")
+                .bodyValue(itemSent)
+                .exchange()
+
+                //then
+                .expectStatus().isOk()
+                .expectBody(Item.class).isEqualTo(created);
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+        assertThat(recordedRequest.getMethod()).isEqualTo("POST");
+        assertThat(objectMapper.readValue(recordedRequest.getBody().readString(StandardCharsets.UTF_8), Item.class))
+                .isEqualTo(itemSent);
+    }
+
+    @Test
+    void shedCallsAreServiceUnavailableWithRetryAfter() {
+        //given
+        ConcurrencyLimitProperties limitProperties = new ConcurrencyLimitProperties();
+        limitProperties.setInitialLimit(0);
+        limitProperties.setMaxQueueSize(0);
+        limitProperties.setRetryAfter(Duration.ofSeconds(2));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(limitProperties, new SimpleMeterRegistry());
+        WebTestClient shedding = routesOver(WebClient.builder().filter(limiter.filter()));
+
+        //when
+        //then
+        for (String uri : Arrays.asList("/client/retrieve", "/client/exchange", "/client/retrieve/id1", "/client/exchange/id1")) {
+            shedding.get().uri(uri)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                    .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+        }
+        shedding.post().uri("/client/createItem")
+                .bodyValue(new Item(null, "descToSet", 9.01))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+    }
+}
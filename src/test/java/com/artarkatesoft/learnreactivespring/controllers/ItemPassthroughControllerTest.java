@@ -0,0 +1,120 @@
+package com.artarkatesoft.learnreactivespring.controllers;
+
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class ItemPassthroughControllerTest {
+
+    private static final String ITEMS_JSON = "[{\"id\":\"id1\",\"description\":\"desc1\",\"price\":1.0,\"extra\":\"kept\"}]";
+
+    private MockWebServer mockBackEnd;
+    private MeterRegistry meterRegistry;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        meterRegistry = new SimpleMeterRegistry();
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry);
+        UpstreamPolicyProperties policyProperties = new UpstreamPolicyProperties();
+        policyProperties.getDefaults().setRetryBackoff(Duration.ofMillis(1));
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + mockBackEnd.getPort())
+                .filter(upstreamMetrics.statusRecorder())
+                .build();
+        ItemPassthroughController controller = new ItemPassthroughController(webClient, upstreamMetrics,
+                new UpstreamPolicies(policyProperties, meterRegistry));
+        webTestClient = WebTestClient.bindToController(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void getAllItems_relaysBodyAndHeadersUnchanged() throws InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(ITEMS_JSON)
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .addHeader(ETAG, "\"v1\"")
+                .addHeader("X-Internal", "not relayed"));
+
+        //when
+        webTestClient.get().uri("/client/passthrough/retrieve")
+                .header(ACCEPT, APPLICATION_NDJSON_VALUE + ", " + APPLICATION_JSON_VALUE)
+                .exchange()
+
+                //then
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_JSON_VALUE)
+                .expectHeader().valueEquals(ETAG, "\"v1\"")
+                .expectHeader().doesNotExist("X-Internal")
+                .expectBody(String.class).isEqualTo(ITEMS_JSON);
+
+        RecordedRequest recordedRequest = mockBackEnd.takeRequest();
+        assertThat(recordedRequest.getPath()).isEqualTo(ITEM_END_POINT_V1);
+        assertThat(recordedRequest.getHeader(ACCEPT)).isEqualTo(APPLICATION_NDJSON_VALUE + ", " + APPLICATION_JSON_VALUE);
+        assertThat(meterRegistry.get(UpstreamMetrics.REQUESTS_METRIC)
+                .tags("operation", OPERATION_PASSTHROUGH_RETRIEVE, "status", "200")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getOneItem_relaysClientErrorWithoutRetrying() throws InterruptedException {
+        //given
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(404).setBody("no such item"));
+
+        //when
+        webTestClient.get().uri("/client/passthrough/retrieve/{id}", "missing")
+                .exchange()
+
+                //then
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("no such item");
+
+        assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo(ITEM_END_POINT_V1 + "/missing");
+        assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getOneItem_retriesServerErrorBeforeWritingAnything() {
+        //given
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(503));
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody("{\"id\":\"id1\"}")
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+
+        //when
+        webTestClient.get().uri("/client/passthrough/retrieve/{id}", "id1")
+                .exchange()
+
+                //then
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"id\":\"id1\"}");
+
+        assertThat(mockBackEnd.getRequestCount()).isEqualTo(2);
+    }
+}
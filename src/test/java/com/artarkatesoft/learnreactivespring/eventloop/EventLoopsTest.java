@@ -0,0 +1,103 @@
+package com.artarkatesoft.learnreactivespring.eventloop;
+
+import com.artarkatesoft.learnreactivespring.config.EventLoopProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventLoopsTest {
+
+    private MockWebServer mockBackEnd;
+    private EventLoopProperties properties;
+    private MeterRegistry meterRegistry;
+    private EventLoops eventLoops;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        properties = new EventLoopProperties();
+        properties.setEnabled(true);
+        properties.setWorkerThreads(1);
+        properties.setClientWorkerThreads(1);
+        properties.setPreferNative(false);
+        properties.setMetricsInterval(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (eventLoops != null) eventLoops.stop();
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void configure_sharedCallsRunOnServerLoopsAndAreProbed() {
+        //given
+        eventLoops = new EventLoops(properties, meterRegistry);
+        eventLoops.start();
+        mockBackEnd.enqueue(new MockResponse().setBody("ok"));
+
+        //when
+        eventLoops.sample();
+
+        //then
+        //one worker runs tasks in order, so the probe has run once the call completes on it
+        StepVerifier.create(callingThread())
+                .assertNext(thread -> assertThat(thread).startsWith("itemclient-server"))
+                .verifyComplete();
+        assertThat(meterRegistry.get(EventLoops.TASK_DELAY_METRIC).tag("group", "server").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(EventLoops.PENDING_TASKS_METRIC).tag("group", "server").gauge().value()).isGreaterThanOrEqualTo(0);
+        assertThat(meterRegistry.find(EventLoops.UTILIZATION_METRIC).tag("group", "server").gauge()).isNotNull();
+        assertThat(meterRegistry.find(EventLoops.TASK_DELAY_METRIC).tag("group", "client").timer()).isNull();
+    }
+
+    @Test
+    void configure_unsharedCallsRunOnClientLoops() {
+        //given
+        properties.setShared(false);
+        eventLoops = new EventLoops(properties, meterRegistry);
+        eventLoops.start();
+        mockBackEnd.enqueue(new MockResponse().setBody("ok"));
+
+        //when
+        //then
+        StepVerifier.create(callingThread())
+                .assertNext(thread -> assertThat(thread).startsWith("itemclient-client"))
+                .verifyComplete();
+        assertThat(meterRegistry.find(EventLoops.UTILIZATION_METRIC).tag("group", "client").gauge()).isNotNull();
+    }
+
+    @Test
+    void configure_disabledLeavesClientAsIs() {
+        //given
+        properties.setEnabled(false);
+        eventLoops = new EventLoops(properties, meterRegistry);
+        HttpClient client = HttpClient.create();
+
+        //when
+        //then
+        assertThat(eventLoops.configure(client)).isSameAs(client);
+        assertThat(eventLoops.isNative()).isFalse();
+    }
+
+    private Mono<String> callingThread() {
+        return eventLoops.configure(HttpClient.create(ConnectionProvider.newConnection()))
+                .get()
+                .uri(String.format("http://localhost:%s/", mockBackEnd.getPort()))
+                .responseSingle((response, body) -> body.asString().map(ignored -> Thread.currentThread().getName()));
+    }
+}
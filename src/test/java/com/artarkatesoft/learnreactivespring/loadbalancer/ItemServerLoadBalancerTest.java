@@ -0,0 +1,162 @@
+package com.artarkatesoft.learnreactivespring.loadbalancer;
+
+import com.artarkatesoft.learnreactivespring.config.ItemServerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemServerLoadBalancerTest {
+
+    private MockWebServer first;
+    private MockWebServer second;
+    private ItemServerProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        first = new MockWebServer();
+        second = new MockWebServer();
+        first.start();
+        second.start();
+        properties = new ItemServerProperties();
+        properties.setUrl("http://unused");
+        properties.setInstances(Arrays.asList(
+                "http://localhost:" + first.getPort(),
+                "http://localhost:" + second.getPort()));
+        properties.getLoadBalancer().setConsecutiveFailures(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    void filter_spreadsRequestsAcrossInstances() {
+        //given
+        IntStream.range(0, 20).forEach(i -> {
+            first.enqueue(new MockResponse().setBody("first"));
+            second.enqueue(new MockResponse().setBody("second"));
+        });
+        WebClient webClient = webClient(new ItemServerLoadBalancer(properties, meterRegistry, WebClient.create()));
+
+        //when
+        IntStream.range(0, 20).forEach(i -> webClient.get().uri("/v1/items").retrieve().bodyToMono(String.class).block());
+
+        //then
+        assertThat(first.getRequestCount()).isPositive();
+        assertThat(second.getRequestCount()).isPositive();
+        assertThat(first.getRequestCount() + second.getRequestCount()).isEqualTo(20);
+    }
+
+    @Test
+    void filter_ejectsInstanceAfterConsecutiveFailures() throws InterruptedException {
+        //given
+        IntStream.range(0, 10).forEach(i -> {
+            first.enqueue(new MockResponse().setResponseCode(503));
+            second.enqueue(new MockResponse().setBody("second"));
+        });
+        ItemServerLoadBalancer loadBalancer = new ItemServerLoadBalancer(properties, meterRegistry, WebClient.create());
+        //the healthy instance looks slow, so the failing one keeps winning the choice until it is ejected
+        ItemServerInstance healthy = loadBalancer.getInstances().get(1);
+        healthy.responded(TimeUnit.SECONDS.toNanos(10), true, 0);
+        WebClient webClient = webClient(loadBalancer);
+
+        //when
+        IntStream.range(0, 10).forEach(i -> webClient.get().uri("/v1/items").exchange()
+                .flatMap(response -> response.releaseBody())
+                .block());
+
+        //then
+        ItemServerInstance failing = loadBalancer.getInstances().get(0);
+        assertThat(failing.isEjected()).isTrue();
+        assertThat(first.getRequestCount()).isEqualTo(2);
+        assertThat(meterRegistry.counter(ItemServerLoadBalancer.EJECTIONS_METRIC, "instance", failing.toString()).count()).isEqualTo(1);
+        assertThat(first.takeRequest(1, TimeUnit.SECONDS).getPath()).isEqualTo("/v1/items");
+    }
+
+    @Test
+    void filter_requestStaysInFlightUntilBodyIsRead() {
+        //given
+        properties.setInstances(Arrays.asList("http://localhost:" + first.getPort()));
+        first.enqueue(new MockResponse().setBody("first"));
+        ItemServerLoadBalancer loadBalancer = new ItemServerLoadBalancer(properties, meterRegistry, WebClient.create());
+        ItemServerInstance instance = loadBalancer.getInstances().get(0);
+
+        //when
+        ClientResponse response = webClient(loadBalancer).get().uri("/v1/items").exchange().block();
+
+        //then
+        assertThat(instance.getInFlight()).isEqualTo(1);
+        assertThat(response.bodyToMono(String.class).block()).isEqualTo("first");
+        assertThat(instance.getInFlight()).isZero();
+    }
+
+    @Test
+    void filter_requestCancelledMidBodyIsFinishedOnce() {
+        //given
+        properties.setInstances(Arrays.asList("http://localhost:" + first.getPort()));
+        for (int i = 0; i < 10; i++)
+            first.enqueue(new MockResponse().setBody("[\"a\",\"b\",\"c\"]").addHeader("Content-Type", "application/json"));
+        ItemServerLoadBalancer loadBalancer = new ItemServerLoadBalancer(properties, meterRegistry, WebClient.create());
+        ItemServerInstance instance = loadBalancer.getInstances().get(0);
+        WebClient webClient = webClient(loadBalancer);
+
+        //when
+        for (int i = 0; i < 10; i++)
+            webClient.get().uri("/v1/items").retrieve().bodyToFlux(String.class).take(1).blockLast();
+
+        //then
+        assertThat(instance.getInFlight()).isZero();
+    }
+
+    @Test
+    void instance_failureCountsAsAtLeastThePenalty() {
+        //given
+        ItemServerInstance instance = new ItemServerInstance(URI.create("http://localhost"));
+
+        //when
+        instance.responded(TimeUnit.MILLISECONDS.toNanos(1), false, TimeUnit.SECONDS.toNanos(1));
+
+        //then
+        assertThat(instance.getEwmaLatencyNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void choose_leastOutstandingPrefersIdleInstance() {
+        //given
+        properties.getLoadBalancer().setStrategy(ItemServerProperties.Strategy.LEAST_OUTSTANDING_REQUESTS);
+        ItemServerLoadBalancer loadBalancer = new ItemServerLoadBalancer(properties, meterRegistry, WebClient.create());
+        ItemServerInstance busy = loadBalancer.getInstances().get(0);
+        busy.started();
+        busy.started();
+
+        //when
+        ItemServerInstance chosen = loadBalancer.choose();
+
+        //then
+        assertThat(chosen).isSameAs(loadBalancer.getInstances().get(1));
+    }
+
+    private WebClient webClient(ItemServerLoadBalancer loadBalancer) {
+        return WebClient.builder()
+                .baseUrl(properties.getUrl())
+                .filter(loadBalancer.filter())
+                .build();
+    }
+}
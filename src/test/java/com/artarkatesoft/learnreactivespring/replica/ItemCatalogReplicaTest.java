@@ -0,0 +1,112 @@
+package com.artarkatesoft.learnreactivespring.replica;
+
+import com.artarkatesoft.learnreactivespring.config.ItemReplicaProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class ItemCatalogReplicaTest {
+
+    private final List<Item> items = Arrays.asList(
+            new Item("id1", "Red apple", 3.0),
+            new Item("id2", "red pepper", 1.5),
+            new Item("id3", "Green apple", 2.0),
+            new Item("id4", "Reading lamp", Item.NO_PRICE),
+            new Item("id5", null, 0.5));
+
+    private MockWebServer mockBackEnd;
+    private MeterRegistry meterRegistry;
+    private ItemCatalogReplica replica;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        meterRegistry = new SimpleMeterRegistry();
+        ItemReplicaProperties properties = new ItemReplicaProperties();
+        properties.setEnabled(true);
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + mockBackEnd.getPort())
+                .build();
+        replica = new ItemCatalogReplica(properties, webClient,
+                new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry),
+                new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void sync_indexesCatalogForQueries() throws Exception {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(new ObjectMapper().writeValueAsString(items))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+
+        AtomicReference<String> indexingThread = new AtomicReference<>();
+
+        //when
+        replica.sync().doOnSuccess(done -> indexingThread.set(Thread.currentThread().getName())).block();
+
+        //then
+        assertThat(indexingThread.get()).startsWith("boundedElastic");
+        assertThat(replica.isLoaded()).isTrue();
+        assertThat(replica.get("id3")).isEqualTo(items.get(2));
+        assertThat(replica.get("missing")).isNull();
+        assertThat(replica.priceBetween(1.0, 2.0, 100)).extracting(Item::getId).containsExactly("id2", "id3");
+        assertThat(replica.priceBetween(0, Double.MAX_VALUE, 2)).extracting(Item::getId).containsExactly("id5", "id2");
+        assertThat(replica.cheapest(3)).extracting(Item::getId).containsExactly("id5", "id2", "id3");
+        assertThat(replica.descriptionStartsWith("RE", 100)).extracting(Item::getId).containsExactly("id4", "id1", "id2");
+        assertThat(replica.descriptionStartsWith("red", 1)).extracting(Item::getId).containsExactly("id1");
+        assertThat(meterRegistry.get(ItemCatalogReplica.ITEMS_METRIC).gauge().value()).isEqualTo(5);
+        assertThat(meterRegistry.get(ItemCatalogReplica.MEMORY_METRIC).gauge().value()).isPositive();
+        assertThat(mockBackEnd.takeRequest(5, TimeUnit.SECONDS).getPath()).isEqualTo(ITEM_END_POINT_V1);
+    }
+
+    @Test
+    void sync_notModifiedKeepsIndexAndFailureIsCounted() throws Exception {
+        //given
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody(new ObjectMapper().writeValueAsString(items))
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .addHeader(ETAG, "\"v1\""));
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(304));
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(404));
+        replica.sync().block();
+
+        //when
+        replica.sync().block();
+        replica.sync().block();
+
+        //then
+        mockBackEnd.takeRequest(5, TimeUnit.SECONDS);
+        assertThat(mockBackEnd.takeRequest(5, TimeUnit.SECONDS).getHeader(IF_NONE_MATCH)).isEqualTo("\"v1\"");
+        assertThat(replica.cheapest(10)).hasSize(4);
+        assertThat(meterRegistry.counter(ItemCatalogReplica.SYNCS_METRIC, "result", "not_modified").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(ItemCatalogReplica.SYNCS_METRIC, "result", "error").count()).isEqualTo(1);
+    }
+}
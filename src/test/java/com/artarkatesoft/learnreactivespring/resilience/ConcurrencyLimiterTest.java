@@ -0,0 +1,122 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    private ConcurrencyLimitProperties properties;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConcurrencyLimitProperties();
+        properties.setEnabled(true);
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        properties.setMaxQueueSize(1);
+        properties.setMaxQueueWait(Duration.ofMillis(100));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void acquire_overLimitWaitsInQueueThenIsShed() {
+        //given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties, meterRegistry);
+        limiter.acquire().block();
+        limiter.acquire().block();
+
+        //when
+        //then
+        StepVerifier.create(limiter.acquire())
+                .verifyError(ConcurrencyLimitExceededException.class);
+        assertThat(meterRegistry.counter(ConcurrencyLimiter.REJECTIONS_METRIC, "reason", "queue_timeout").count()).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void acquire_fullQueueIsShedImmediately() {
+        //given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties, meterRegistry);
+        limiter.acquire().block();
+        limiter.acquire().block();
+        limiter.acquire().subscribe();
+
+        //when
+        //then
+        StepVerifier.create(limiter.acquire())
+                .verifyError(ConcurrencyLimitExceededException.class);
+        assertThat(meterRegistry.counter(ConcurrencyLimiter.REJECTIONS_METRIC, "reason", "queue_full").count()).isEqualTo(1);
+    }
+
+    @Test
+    void release_grantsQueuedCall() {
+        //given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties, meterRegistry);
+        ConcurrencyLimiter.Permit first = limiter.acquire().block();
+        limiter.acquire().block();
+
+        //when
+        //then
+        StepVerifier.create(limiter.acquire())
+                .then(first::cancel)
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(meterRegistry.get(ConcurrencyLimiter.QUEUE_WAIT_METRIC).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void filter_permitIsHeldUntilBodyIsRead() {
+        //given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties, meterRegistry);
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost/v1/items")).build();
+        ExchangeFunction itemServer = req -> Mono.just(ClientResponse.create(HttpStatus.OK).body("[]").build());
+
+        //when
+        ClientResponse response = limiter.filter().filter(request, itemServer).block();
+
+        //then
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(response.bodyToMono(String.class).block()).isEqualTo("[]");
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void onSample_limitGrowsWhileLatencyHoldsAndShrinksWhenItRises() {
+        //given
+        properties.setInitialLimit(20);
+        properties.setSmoothing(1.0);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties, meterRegistry);
+        long fast = TimeUnit.MILLISECONDS.toNanos(1);
+
+        //when
+        for (int i = 0; i < 5; i++) limiter.onSample(fast, limiter.getLimit(), false);
+        int grown = limiter.getLimit();
+        limiter.onSample(fast * 10, grown, false);
+        int shrunk = limiter.getLimit();
+        limiter.onSample(fast, 0, true);
+
+        //then
+        assertThat(grown).isGreaterThan(20);
+        assertThat(shrunk).isLessThan(grown);
+        assertThat(limiter.getLimit()).isLessThan(shrunk);
+        assertThat(meterRegistry.get(ConcurrencyLimiter.LIMIT_METRIC).gauge().value()).isEqualTo(limiter.getLimit());
+    }
+}
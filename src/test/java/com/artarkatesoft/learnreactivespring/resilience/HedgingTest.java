@@ -0,0 +1,98 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.config.HedgingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgingTest {
+
+    private HedgingProperties properties;
+    private MeterRegistry meterRegistry;
+    private AtomicInteger attempts;
+    private AtomicBoolean slowAttemptCancelled;
+
+    @BeforeEach
+    void setUp() {
+        properties = new HedgingProperties();
+        properties.setEnabled(true);
+        properties.setDelay(Duration.ofMillis(20));
+        meterRegistry = new SimpleMeterRegistry();
+        attempts = new AtomicInteger();
+        slowAttemptCancelled = new AtomicBoolean();
+    }
+
+    @Test
+    void hedge_secondAttemptWinsAndSlowOneIsCancelled() {
+        //given
+        Hedging hedging = new Hedging(properties, meterRegistry);
+
+        //when
+        Mono<String> result = hedging.hedge("get-by-id", this::slowThenFast);
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("fast")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+        assertThat(attempts).hasValue(2);
+        assertThat(slowAttemptCancelled).isTrue();
+        assertThat(meterRegistry.counter(Hedging.FIRED_METRIC, "operation", "get-by-id").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(Hedging.WON_METRIC, "operation", "get-by-id").count()).isEqualTo(1);
+    }
+
+    @Test
+    void hedge_fastPrimaryDoesNotFireHedge() {
+        //given
+        Hedging hedging = new Hedging(properties, meterRegistry);
+
+        //when
+        Mono<String> result = hedging.hedge("get-by-id", () -> {
+            attempts.incrementAndGet();
+            return Mono.just("primary");
+        });
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("primary")
+                .verifyComplete();
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.counter(Hedging.FIRED_METRIC, "operation", "get-by-id").count()).isZero();
+    }
+
+    @Test
+    void hedge_exhaustedBudgetSkipsHedge() {
+        //given
+        properties.setBudgetMaxTokens(0);
+        properties.setBudgetRatio(0.0);
+        Hedging hedging = new Hedging(properties, meterRegistry);
+
+        //when
+        Mono<String> result = hedging.hedge("get-by-id", this::slowThenFast);
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("slow")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.counter(Hedging.SKIPPED_METRIC, "operation", "get-by-id").count()).isEqualTo(1);
+    }
+
+    private Mono<String> slowThenFast() {
+        if (attempts.incrementAndGet() == 1)
+            return Mono.delay(Duration.ofMillis(300))
+                    .thenReturn("slow")
+                    .doOnCancel(() -> slowAttemptCancelled.set(true));
+        return Mono.just("fast");
+    }
+}
@@ -0,0 +1,200 @@
+package com.artarkatesoft.learnreactivespring.resilience;
+
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamPoliciesTest {
+
+    private UpstreamPolicyProperties properties;
+    private MeterRegistry meterRegistry;
+    private AtomicInteger attempts;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UpstreamPolicyProperties();
+        properties.getDefaults().setRetryBackoff(Duration.ofMillis(1));
+        properties.getDefaults().setTimeout(Duration.ofMillis(200));
+        meterRegistry = new SimpleMeterRegistry();
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    void mono_retriesServerErrorForIdempotentOperation() {
+        //given
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+
+        //when
+        Mono<String> result = failingTimes(2).transform(policies.mono(OPERATION_GET_BY_ID));
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("ok")
+                .verifyComplete();
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.counter(UpstreamPolicies.RETRIES_METRIC, "operation", OPERATION_GET_BY_ID).count()).isEqualTo(2);
+    }
+
+    @Test
+    void mono_operationOverrideKeepsDefaultsItLeavesOut() {
+        //given
+        UpstreamPolicyProperties.Policy override = new UpstreamPolicyProperties.Policy();
+        override.setTimeout(Duration.ofSeconds(1));
+        properties.getOperations().put(OPERATION_GET_BY_ID, override);
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+
+        //when
+        Mono<String> result = failingTimes(2).transform(policies.mono(OPERATION_GET_BY_ID));
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("ok")
+                .verifyComplete();
+        assertThat(attempts).hasValue(3);
+        assertThat(properties.forOperation(OPERATION_GET_BY_ID).getTimeout()).isEqualTo(Duration.ofSeconds(1));
+        assertThat(properties.forOperation(OPERATION_GET_BY_ID).getRetryBackoff()).isEqualTo(Duration.ofMillis(1));
+    }
+
+    @Test
+    void mono_doesNotRetryCreate() {
+        //given
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+
+        //when
+        Mono<String> result = failingTimes(1).transform(policies.mono(OPERATION_CREATE));
+
+        //then
+        StepVerifier.create(result)
+                .verifyError(WebClientResponseException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void mono_doesNotRetryClientError() {
+        //given
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+        Mono<String> notFound = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null));
+        });
+
+        //when
+        Mono<String> result = notFound.transform(policies.mono(OPERATION_GET_BY_ID));
+
+        //then
+        StepVerifier.create(result)
+                .verifyError(WebClientResponseException.NotFound.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void mono_timeoutSurfacesAsGatewayTimeout() {
+        //given
+        properties.getDefaults().setMaxRetries(0);
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+
+        //when
+        Mono<String> result = Mono.<String>never().transform(policies.mono(OPERATION_GET_BY_ID));
+
+        //then
+        StepVerifier.create(result)
+                .verifyErrorSatisfies(ex -> assertThat(ex)
+                        .isInstanceOf(ResponseStatusException.class)
+                        .extracting(e -> ((ResponseStatusException) e).getStatus())
+                        .isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+        assertThat(meterRegistry.counter(UpstreamPolicies.TIMEOUTS_METRIC, "operation", OPERATION_GET_BY_ID).count()).isEqualTo(1);
+    }
+
+    @Test
+    void mono_openCircuitFailsFastWithServiceUnavailable() {
+        //given
+        properties.getDefaults().setMaxRetries(0);
+        properties.getDefaults().setMinimumNumberOfCalls(5);
+        properties.getDefaults().setSlidingWindowSize(5);
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+        IntStream.range(0, 5).forEach(i -> failingTimes(Integer.MAX_VALUE)
+                .transform(policies.mono(OPERATION_DELETE))
+                .onErrorResume(e -> Mono.empty())
+                .block());
+        attempts.set(0);
+
+        //when
+        Mono<String> result = failingTimes(0).transform(policies.mono(OPERATION_DELETE));
+
+        //then
+        StepVerifier.create(result)
+                .verifyErrorSatisfies(ex -> assertThat(ex)
+                        .isInstanceOf(ResponseStatusException.class)
+                        .extracting(e -> ((ResponseStatusException) e).getStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(attempts).hasValue(0);
+    }
+
+    @Test
+    void flux_doesNotRetryAfterFirstItem() {
+        //given
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+        Flux<String> failsMidStream = Flux.defer(() -> {
+            attempts.incrementAndGet();
+            return Flux.concat(Flux.just("first"), Mono.error(WebClientResponseException.create(503, "Unavailable", null, null, null)));
+        });
+
+        //when
+        Flux<String> result = failsMidStream.transform(policies.flux(OPERATION_RETRIEVE));
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("first")
+                .verifyError(WebClientResponseException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void flux_slowSubscriberDoesNotTimeOut() {
+        //given
+        properties.getDefaults().setCircuitBreakerEnabled(true);
+        properties.getDefaults().setMinimumNumberOfCalls(1);
+        UpstreamPolicies policies = new UpstreamPolicies(properties, meterRegistry);
+        Flux<String> items = Flux.defer(() -> {
+            attempts.incrementAndGet();
+            return Flux.just("first", "second", "third");
+        });
+
+        //when
+        Flux<String> result = items.transform(policies.flux(OPERATION_RETRIEVE));
+
+        //then
+        StepVerifier.create(result, 1)
+                .expectNext("first")
+                .thenAwait(Duration.ofMillis(500))
+                .thenRequest(2)
+                .expectNext("second", "third")
+                .verifyComplete();
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.counter(UpstreamPolicies.TIMEOUTS_METRIC, "operation", OPERATION_RETRIEVE).count()).isZero();
+        StepVerifier.create(Flux.just("next").transform(policies.flux(OPERATION_RETRIEVE)))
+                .expectNext("next")
+                .verifyComplete();
+    }
+
+    private Mono<String> failingTimes(int failures) {
+        return Mono.defer(() -> attempts.incrementAndGet() <= failures
+                ? Mono.error(WebClientResponseException.create(503, "Unavailable", null, null, null))
+                : Mono.just("ok"));
+    }
+}
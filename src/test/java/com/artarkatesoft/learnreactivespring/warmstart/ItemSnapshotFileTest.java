@@ -0,0 +1,92 @@
+package com.artarkatesoft.learnreactivespring.warmstart;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemListSnapshot;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ItemSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void map_restoresItemsValidatorsAndAgeAndDecodesOnlyWhatIsRead() throws IOException {
+        //given
+        Path file = directory.resolve("items.snapshot");
+        List<Item> items = Arrays.asList(
+                new Item("b", "Beats Headphones", 149.99),
+                new Item(null, null, Item.NO_PRICE),
+                new Item("a", "Samsung TV é", 399.99),
+                new Item("c", "Apple Watch", 299.99));
+        long fetchedAtMillis = System.currentTimeMillis() - 60_000;
+        ItemSnapshotFile.write(file, ItemListSnapshot.restored(items, "\"v1\"", null, Duration.ZERO), fetchedAtMillis);
+        AtomicInteger decoded = new AtomicInteger();
+
+        //when
+        ItemSnapshotFile snapshotFile = ItemSnapshotFile.map(file);
+        ItemListSnapshot restored = snapshotFile.toSnapshot(decoded::incrementAndGet);
+
+        //then
+        assertThat(snapshotFile.size()).isEqualTo(4);
+        assertThat(snapshotFile.fetchedAtMillis()).isEqualTo(fetchedAtMillis);
+        assertThat(restored.age()).isBetween(Duration.ofSeconds(59), Duration.ofSeconds(70));
+        assertThat(restored.getEtag()).isEqualTo("\"v1\"");
+        assertThat(restored.getLastModified()).isNull();
+        assertThat(decoded).hasValue(0);
+        assertThat(restored.getItems().get(2)).isEqualTo(new Item("a", "Samsung TV é", 399.99));
+        assertThat(decoded).hasValue(1);
+        assertThat(restored.getItems()).containsExactlyElementsOf(items);
+        assertThat(snapshotFile.isSourceOf(restored.getItems())).isTrue();
+        assertThat(snapshotFile.isSourceOf(items)).isFalse();
+    }
+
+    @Test
+    void find_binarySearchesTheIdTable() throws IOException {
+        //given
+        Path file = directory.resolve("items.snapshot");
+        List<Item> items = Arrays.asList(
+                new Item("id3", "third", 3),
+                new Item("id1", "first", 1),
+                new Item(null, "no id", 0),
+                new Item("id2", "second", Item.NO_PRICE));
+        ItemSnapshotFile.write(file, ItemListSnapshot.restored(items, null, null, Duration.ZERO), System.currentTimeMillis());
+
+        //when
+        ItemSnapshotFile snapshotFile = ItemSnapshotFile.map(file);
+
+        //then
+        assertThat(snapshotFile.find("id1")).isEqualTo(new Item("id1", "first", 1));
+        assertThat(snapshotFile.find("id2").hasPrice()).isFalse();
+        assertThat(snapshotFile.find("id3")).isEqualTo(new Item("id3", "third", 3));
+        assertThat(snapshotFile.find("id0")).isNull();
+        assertThat(snapshotFile.find("id4")).isNull();
+    }
+
+    @Test
+    void map_rejectsTruncatedFile() throws IOException {
+        //given
+        Path file = directory.resolve("items.snapshot");
+        List<Item> items = Arrays.asList(new Item("id1", "first", 1), new Item("id2", "second", 2));
+        ItemSnapshotFile.write(file, ItemListSnapshot.restored(items, null, null, Duration.ZERO), System.currentTimeMillis());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        //when
+        //then
+        assertThatThrownBy(() -> ItemSnapshotFile.map(file)).isInstanceOf(IOException.class);
+    }
+}
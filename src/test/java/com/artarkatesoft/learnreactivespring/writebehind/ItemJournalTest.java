@@ -0,0 +1,105 @@
+package com.artarkatesoft.learnreactivespring.writebehind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recover_returnsRecordsAfterCheckpointAndStopsAtTornRecord() throws IOException {
+        //given
+        Path file = directory.resolve("test.journal");
+        long third;
+        try (ItemJournal journal = ItemJournal.open(file, 4096, false)) {
+            journal.recover();
+            long first = journal.append(bytes("first"));
+            journal.append(bytes("second"));
+            third = journal.append(bytes("third"));
+            journal.append(bytes("fourth"));
+            journal.settle(first);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            //flip a payload byte of the third record
+            //ids are file offsets while the journal has not started over
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), third + 16);
+        }
+
+        //when
+        List<ItemJournal.Record> records;
+        try (ItemJournal journal = ItemJournal.open(file, 4096, false)) {
+            records = journal.recover();
+        }
+
+        //then
+        assertThat(records).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("second");
+    }
+
+    @Test
+    void append_startsOverOnceEverythingIsSettledAndRejectsWhatDoesNotFit() throws IOException {
+        //given
+        Path file = directory.resolve("test.journal");
+        try (ItemJournal journal = ItemJournal.open(file, 64, false)) {
+            journal.recover();
+            long first = journal.append(bytes("first"));
+            journal.settle(first);
+
+            //when
+            //fits at the front only
+            long second = journal.append(bytes("second, not short"));
+
+            //then
+            assertThat(second).isGreaterThan(first);
+            assertThat(journal.append(new byte[64])).isEqualTo(-1);
+        }
+        try (ItemJournal journal = ItemJournal.open(file, 64, false)) {
+            assertThat(journal.recover()).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                    .containsExactly("second, not short");
+        }
+    }
+
+    @Test
+    void append_compactsAroundUnsettledRecordsWhenFull() throws IOException {
+        //given
+        Path file = directory.resolve("test.journal");
+        String fourthPayload = "fourth, which only fits once compacted";
+        try (ItemJournal journal = ItemJournal.open(file, 128, true)) {
+            journal.recover();
+            long first = journal.append(bytes("first"));
+            journal.append(bytes("kept"));
+            long third = journal.append(bytes("third"));
+            journal.settle(first);
+            journal.settle(third);
+
+            //when
+            long fourth = journal.append(bytes(fourthPayload));
+            journal.sync(fourth);
+
+            //then
+            assertThat(fourth).isPositive();
+            assertThat(journal.usedBytes()).isEqualTo(16 + "kept".length() + 16 + fourthPayload.length());
+        }
+        try (ItemJournal journal = ItemJournal.open(file, 128, true)) {
+            assertThat(journal.recover()).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                    .containsExactly("kept", fourthPayload);
+        }
+        assertThat(directory.resolve("test.journal.compact")).doesNotExist();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
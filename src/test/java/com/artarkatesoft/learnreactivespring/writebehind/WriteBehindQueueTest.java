@@ -0,0 +1,119 @@
+package com.artarkatesoft.learnreactivespring.writebehind;
+
+import com.artarkatesoft.learnreactivespring.cache.ItemListCache;
+import com.artarkatesoft.learnreactivespring.config.ItemListCacheProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamMetricsProperties;
+import com.artarkatesoft.learnreactivespring.config.UpstreamPolicyProperties;
+import com.artarkatesoft.learnreactivespring.config.WriteBehindProperties;
+import com.artarkatesoft.learnreactivespring.domain.Item;
+import com.artarkatesoft.learnreactivespring.domain.WriteBehindStatus;
+import com.artarkatesoft.learnreactivespring.metrics.UpstreamMetrics;
+import com.artarkatesoft.learnreactivespring.resilience.UpstreamPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static com.artarkatesoft.learnreactivespring.constants.ItemConstants.ITEM_END_POINT_V1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class WriteBehindQueueTest {
+
+    @TempDir
+    Path directory;
+
+    private MockWebServer mockBackEnd;
+    private MeterRegistry meterRegistry;
+    private WriteBehindProperties properties;
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockBackEnd = new MockWebServer();
+        mockBackEnd.start();
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setFsync(false);
+        //drained by the test
+        properties.setDrainInterval(Duration.ofHours(1));
+        properties.setRetryBackoff(Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (queue != null) queue.stop();
+        mockBackEnd.shutdown();
+    }
+
+    @Test
+    void drain_retriesTransientFailureThenRecordsCreatedItem() throws Exception {
+        //given
+        queue = startQueue();
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(503));
+        mockBackEnd.enqueue(new MockResponse()
+                .setBody("{\"id\":\"new-id\",\"description\":\"desc\",\"price\":1.0}")
+                .addHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        WriteBehindStatus accepted = queue.submit(new Item(null, "desc", 1.0)).block();
+
+        //when
+        queue.drain().block();
+        WriteBehindStatus afterFailure = queue.status(accepted.getTrackingId()).block();
+        queue.drain().block();
+
+        //then
+        assertThat(accepted.getState()).isEqualTo(WriteBehindStatus.State.PENDING);
+        assertThat(afterFailure.getState()).isEqualTo(WriteBehindStatus.State.PENDING);
+        assertThat(afterFailure.getAttempts()).isEqualTo(1);
+        WriteBehindStatus created = queue.status(accepted.getTrackingId()).block();
+        assertThat(created.getState()).isEqualTo(WriteBehindStatus.State.CREATED);
+        assertThat(created.getItemId()).isEqualTo("new-id");
+        assertThat(mockBackEnd.takeRequest().getPath()).isEqualTo(ITEM_END_POINT_V1);
+    }
+
+    @Test
+    void start_resumesItemsLeftInJournal() throws Exception {
+        //given
+        queue = startQueue();
+        WriteBehindStatus accepted = queue.submit(new Item(null, "desc", 1.0)).block();
+        queue.stop();
+        mockBackEnd.enqueue(new MockResponse().setResponseCode(400));
+
+        //when
+        queue = startQueue();
+        WriteBehindStatus resumed = queue.status(accepted.getTrackingId()).block();
+        queue.drain().block();
+
+        //then
+        assertThat(resumed.getState()).isEqualTo(WriteBehindStatus.State.PENDING);
+        WriteBehindStatus failed = queue.status(accepted.getTrackingId()).block();
+        assertThat(failed.getState()).isEqualTo(WriteBehindStatus.State.FAILED);
+        assertThat(mockBackEnd.getRequestCount()).isEqualTo(1);
+    }
+
+    private WriteBehindQueue startQueue() throws IOException {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + mockBackEnd.getPort())
+                .build();
+        WriteBehindQueue started = new WriteBehindQueue(properties, webClient,
+                new ItemListCache(new ItemListCacheProperties(), meterRegistry),
+                new UpstreamMetrics(new UpstreamMetricsProperties(), meterRegistry),
+                new UpstreamPolicies(new UpstreamPolicyProperties(), meterRegistry),
+                new ObjectMapper(), meterRegistry);
+        started.start();
+        return started;
+    }
+}